@@ -0,0 +1,27 @@
+package com.toxicstoxm.velvet_video_remastered;
+
+/**
+ * Which frames a video decoder actually decodes. Skipped frames are neither decoded nor delivered.
+ */
+public enum DecodeLevel {
+    /**
+     * Decode all frames. This is the default.
+     */
+    ALL,
+    /**
+     * Skip frames that no other frame references.
+     */
+    NONREF,
+    /**
+     * Skip bidirectionally predicted (B) frames.
+     */
+    BIDIR,
+    /**
+     * Skip all frames except intra-coded ones.
+     */
+    NONINTRA,
+    /**
+     * Decode keyframes only.
+     */
+    NONKEY
+}
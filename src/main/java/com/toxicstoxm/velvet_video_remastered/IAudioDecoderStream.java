@@ -3,4 +3,31 @@ package com.toxicstoxm.velvet_video_remastered;
 /**
  * Audio data stream in demuxer.
  */
-public interface IAudioDecoderStream extends IDecoderStream<IAudioDecoderStream, IAudioFrame, IAudioStreamProperties>{}
+public interface IAudioDecoderStream extends IDecoderStream<IAudioDecoderStream, IAudioFrame, IAudioStreamProperties> {
+
+	/**
+	 * Seeks to a specific sample. Audio frames vary in size between codecs and containers, so audio streams are positioned by sample
+	 * rather than by frame: the next frame starts exactly at the sample.
+	 * @param sample index of the sample to seek to, at the sample rate of the decoded audio
+	 * @return this stream
+	 */
+	@Override
+	IAudioDecoderStream seek(long sample);
+
+	/**
+	 * Makes the stream convert samples into a bounded pool of direct buffers instead of allocating a new array for each frame.
+	 * Every frame must be given back with {@link IAudioFrame#release()} once its samples are no longer used; after that the buffer will be overwritten by subsequent frames.
+	 * @param size maximum number of buffers in the pool, 0 to disable pooling
+	 * @param block when all buffers are in use, true to wait until a frame is released (from another thread), false to throw {@link VelvetVideoException}
+	 * @return this stream
+	 */
+	IAudioDecoderStream bufferPool(int size, boolean block);
+
+	/**
+	 * Sets the layout of decoded samples. Float layouts spare DSP and analysis code from parsing integer PCM bytes; their samples are
+	 * available from {@link IAudioFrame#floats()}.
+	 * @param layout sample layout, {@link SampleLayout#PCM} by default
+	 * @return this stream
+	 */
+	IAudioDecoderStream sampleLayout(SampleLayout layout);
+}
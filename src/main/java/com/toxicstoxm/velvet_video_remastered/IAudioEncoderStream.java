@@ -1,27 +1,42 @@
 package com.toxicstoxm.velvet_video_remastered;
 
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
 /**
- * Muxer audio stream.
+ * Muxer audio stream. Samples can be sent in chunks of any length: they are buffered until a full codec frame is collected,
+ * and the remainder is encoded as a short last frame when the muxer is closed.
  */
 public interface IAudioEncoderStream {
 
 	/**
-	 * Send audio samples for encoding. The length should not exceed frame size returned by {@link #frameBytes()}.
-	 * @param samples byte arrays with samples to send
+	 * Send audio samples for encoding.
+	 * @param samples byte arrays with samples to send, in the stream's input format
 	 */
-	// TODO
 	void encode(byte[] samples);
 
 	/**
-	 * Send audio samples for encoding. The length should not exceed frame size returned by {@link #frameBytes()}.
-	 * @param samples byte arrays with samples to send
+	 * Send audio samples for encoding.
+	 * @param samples byte arrays with samples to send, in the stream's input format
 	 * @param offset number of bytes in the beginning of array to skip
 	 */
-	// TODO
 	void encode(byte[] samples, int offset);
 
 	/**
-	 * @return audio frame size, in bytes. Audio frame samples sent in {@link #encode(byte[])} should have this length (except the last frame that may be shorter).
+	 * Send the remaining bytes of the buffer for encoding. The buffer's position is advanced past them.
+	 * @param samples samples to send, in the stream's input format
+	 */
+	void encode(ByteBuffer samples);
+
+	/**
+	 * Send the remaining floats of the buffer for encoding. Only for streams with a 32-bit {@link javax.sound.sampled.AudioFormat.Encoding#PCM_FLOAT} input format.
+	 * The buffer's position is advanced past them.
+	 * @param samples interleaved samples to send
+	 */
+	void encode(FloatBuffer samples);
+
+	/**
+	 * @return audio frame size, in bytes. Samples are encoded once this many bytes are collected.
 	 */
 	int frameBytes();
 }
\ No newline at end of file
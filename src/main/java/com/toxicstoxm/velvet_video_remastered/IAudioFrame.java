@@ -1,16 +1,31 @@
 package com.toxicstoxm.velvet_video_remastered;
 
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
 /**
  * Frame of audio data.
  */
 public interface IAudioFrame extends IDecodedPacket<IAudioDecoderStream> {
 
 	/**
-	 * Decoded audio samples.
+	 * Decoded audio samples. Frames of streams with a buffer pool return a new copy on every call, prefer {@link #buffer()} for them.
 	 * @return audio samples bytes
 	 */
 	byte[] samples();
 
+	/**
+	 * Decoded audio samples without copying, laid out as set by {@link IAudioDecoderStream#sampleLayout(SampleLayout)}.
+	 * For streams with a buffer pool the buffer stays valid until the frame is released.
+	 * @return read-only buffer of audio samples
+	 */
+	ByteBuffer buffer();
+
+	/**
+	 * @return read-only float view of {@link #buffer()} for float sample layouts, or null for {@link SampleLayout#PCM}
+	 */
+	FloatBuffer floats();
+
 	@Override
 	default MediaType type() {
 		return MediaType.Audio;
@@ -20,4 +35,4 @@ public interface IAudioFrame extends IDecodedPacket<IAudioDecoderStream> {
 	default IAudioFrame asAudio() {
 		return this;
 	}
-}
\ No newline at end of file
+}
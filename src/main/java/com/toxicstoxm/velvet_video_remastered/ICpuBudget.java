@@ -0,0 +1,26 @@
+package com.toxicstoxm.velvet_video_remastered;
+
+/**
+ * Library-wide budget of native encoder threads. Encoders lease threads from the budget when their codec opens and
+ * give them back when they are closed, so that concurrent encoders do not oversubscribe the cores.
+ */
+public interface ICpuBudget {
+
+	/**
+	 * Sets the number of cores shared by all encoders. Encoders already open keep their threads.
+	 * Encoders without an explicit thread count get an even share of the cores among all open encoders. No more threads than cores are ever leased:
+	 * an encoder opening while every core is leased waits until another encoder is closed, or fails if the busy encoders were all opened on its own thread.
+	 * @param cores number of cores, 0 to disable the budget (default)
+	 */
+	void cores(int cores);
+
+	/**
+	 * @return number of cores shared by all encoders, 0 if the budget is disabled
+	 */
+	int cores();
+
+	/**
+	 * @return number of threads currently leased by open encoders
+	 */
+	int leased();
+}
@@ -5,7 +5,7 @@ package com.toxicstoxm.velvet_video_remastered;
  *
  * @param <S> media decoder stream type, {@link IAudioDecoderStream} or {@link IVideoDecoderStream}
  */
-public interface IDecodedPacket<S extends IDecoderStream<?, ?, ?>> {
+public interface IDecodedPacket<S extends IDecoderStream<?, ?, ?>> extends AutoCloseable {
 
 	/**
 	 * @return media type, video or audio
@@ -49,4 +49,19 @@ public interface IDecodedPacket<S extends IDecoderStream<?, ?, ?>> {
 	 * @return duration of this frame, in nanoseconds
 	 */
 	long nanoduration();
+
+	/**
+	 * Returns pooled resources held by this frame (if any) back to the stream. The frame data must not be used after releasing.
+	 * Frames not taken from a pool ignore this call.
+	 */
+	default void release() {
+	}
+
+	/**
+	 * Same as {@link #release()}, allows using frames in try-with-resources blocks.
+	 */
+	@Override
+	default void close() {
+		release();
+	}
 }
\ No newline at end of file
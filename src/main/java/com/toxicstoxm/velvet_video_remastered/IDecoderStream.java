@@ -1,6 +1,8 @@
 package com.toxicstoxm.velvet_video_remastered;
 
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
 
 /**
  * Demuxer stream with audio or video decoder.
@@ -21,6 +23,14 @@ public interface IDecoderStream<I extends IDecoderStream<?, ?, ?>, F, P> extends
 	 */
 	F nextFrame();
 
+	/**
+	 * Publishes decoded frames of this stream to a single reactive subscriber. Frames are decoded on the executor only as the subscriber requests them.
+	 * Completion, error or cancellation only stops queueing packets for this stream; the demuxer stays open for its other streams and is closed by the caller.
+	 * @param executor executor to demux and decode on
+	 * @return frame publisher
+	 */
+	Flow.Publisher<F> publisher(Executor executor);
+
 	/**
 	 * @return key-value map of stream metadata
 	 */
@@ -32,7 +42,7 @@ public interface IDecoderStream<I extends IDecoderStream<?, ?, ?>, F, P> extends
 	P properties();
 
 	/**
-	 * Seek to a specific frame number.
+	 * Seek to a specific frame number. Audio streams take a sample index instead, see {@link IAudioDecoderStream#seek(long)}.
 	 * @param frameNumber frame number to seek to
 	 * @return this stream
 	 */
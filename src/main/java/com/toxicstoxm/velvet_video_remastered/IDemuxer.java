@@ -3,6 +3,8 @@ package com.toxicstoxm.velvet_video_remastered;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
 import java.util.stream.Stream;
 
 /**
@@ -64,6 +66,14 @@ public interface IDemuxer extends AutoCloseable, Iterable<IDecodedPacket<?>> {
 	@Override
 	Iterator<IDecodedPacket<?>> iterator();
 
+	/**
+	 * Publishes decoded packets to a single reactive subscriber. Packets are decoded on the executor only as the subscriber requests them,
+	 * so no thread is parked waiting for a consumer. Completion, error or cancellation closes this demuxer.
+	 * @param executor executor to demux and decode on
+	 * @return packet publisher
+	 */
+	Flow.Publisher<IDecodedPacket<?>> publisher(Executor executor);
+
 	/**
 	 * Obtains next media packet from the container without decoding it.
 	 * @return  raw packet data of null if end of container reached
@@ -72,6 +82,7 @@ public interface IDemuxer extends AutoCloseable, Iterable<IDecodedPacket<?>> {
 
 	/**
 	 * Closes the demuxer, container file or other handles and frees all the allocated resources. Calling this method is necessary after working with demuxer to avoid resource leaks.
+	 * Closing an already closed demuxer, for example after its publisher has finished, does nothing.
 	 */
 	@Override
 	void close();
@@ -0,0 +1,84 @@
+package com.toxicstoxm.velvet_video_remastered;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+
+/**
+ * Interface to configure and open demuxers.
+ */
+public interface IDemuxerBuilder {
+
+	/**
+	 * Sets the decoder thread budget of the demuxer. Video decoders share the budget evenly, audio decoders always use a single thread.
+	 * Use a small budget to cap the CPU usage when many demuxers work side by side, or a large one to spread a single heavy decode (HEVC, AV1) across cores.
+	 * @param threads total number of decoder threads, 0 to let the codec choose (default)
+	 * @param type threading method
+	 * @return this builder
+	 */
+	IDemuxerBuilder decoderThreads(int threads, ThreadType type);
+
+	/**
+	 * Selects the streams to work with. Other streams are discarded at the container level: the demuxer neither returns their packets
+	 * nor opens decoders for them, and they are not listed in {@link IDemuxer#streams()}.
+	 * @param indices container indices of the selected streams, none to select all streams (default)
+	 * @return this builder
+	 */
+	IDemuxerBuilder streams(int... indices);
+
+	/**
+	 * Limits the per-stream packet queues. When a stream is read on its own (for example with {@link IDecoderStream#nextFrame()}), packets
+	 * of other streams that have been read on their own as well are queued for them until they are read, either from their streams or from {@link IDemuxer#nextPacket()}.
+	 * Packets of streams that have not been read on their own yet are dropped, so reading a single stream never piles up the others.
+	 * Queued packets reference the demuxed data, they are not copied.
+	 * @param capacity maximum number of queued packets per stream, 1024 by default
+	 * @param policy what to do with packets beyond the capacity, {@link OverflowPolicy#DROP_OLDEST} by default, {@link OverflowPolicy#BLOCK} is not supported. Dropped packets are logged as warnings, as decoding after them is corrupted until the next keyframe
+	 * @return this builder
+	 */
+	IDemuxerBuilder packetQueue(int capacity, OverflowPolicy policy);
+
+	/**
+	 * Enables pipelined decoding. A background thread reads the container and every stream decodes and converts its frames on a worker thread of its own,
+	 * handing them over through bounded queues, so reading, decoding and the caller's processing overlap.
+	 * <p>
+	 * Frames from {@link IDemuxer#nextPacket()} come in timestamp order across streams. When only some streams are read with {@link IDecoderStream#nextFrame()},
+	 * frames of unread streams are handled by the {@link #packetQueue(int, OverflowPolicy)} policy once their queue is full; better deselect such streams with {@link #streams(int...)}.
+	 * Streams should be configured before the first frame is read. Raw packets and {@link IVideoFrame#planes()} are not available in this mode.
+	 * @param depth frame and packet queue depth per stream, 0 to decode on the calling thread (default)
+	 * @return this builder
+	 */
+	IDemuxerBuilder pipelined(int depth);
+
+	/**
+	 * Sets the format of decoded audio samples. Audio streams are resampled and remixed to it; without it the format is chosen
+	 * by probing the sound system's mixers for the closest match to the stream's own format.
+	 * Samples are always produced in little endian byte order.
+	 * @param format PCM audio format; sample rate and channels set to {@link javax.sound.sampled.AudioSystem#NOT_SPECIFIED} keep the stream's values
+	 * @return this builder
+	 */
+	IDemuxerBuilder audioFormat(AudioFormat format);
+
+	/**
+	 * Makes {@link #build(File)} read the file through a memory mapping instead of libavformat's own file reads. Reads become plain memory copies
+	 * and seeks cost nothing, which pays off for random access such as thumbnail grids and scrubbing, and demuxers opened on the same file share its pages.
+	 * @param memoryMapped true to map files into memory, false by default
+	 * @return this builder
+	 */
+	IDemuxerBuilder memoryMapped(boolean memoryMapped);
+
+	/**
+	 * Open a demuxer to demux from the specified seekable input stream. The demuxer should
+	 * be closed by calling {@link IDemuxer#close()} after using.
+	 * @param input input
+	 * @return demuxer instance
+	 */
+	IDemuxer build(ISeekableInput input);
+
+	/**
+	 * Open a demuxer to demux from the specified file. The demuxer should
+	 * be closed by calling {@link IDemuxer#close()} after using.
+	 * The file is read natively by libavformat, without going through {@link ISeekableInput} callbacks.
+	 * @param file file to demux
+	 * @return demuxer instance
+	 */
+	IDemuxer build(File file);
+}
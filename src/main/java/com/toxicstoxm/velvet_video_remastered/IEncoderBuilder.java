@@ -57,4 +57,24 @@ public interface IEncoderBuilder<I extends IEncoderBuilder<?>> {
 	 * @return this builder
 	 */
 	I bitrate(int bitrate);
+
+	/**
+	 * Makes the stream encode asynchronously. Each <code>encode</code> call copies the input frame into a bounded queue and returns;
+	 * a worker thread of the stream converts, encodes and muxes the queued frames. {@link IMuxer#close()} waits until the queue is drained.
+	 * Failures of the worker are rethrown by the next <code>encode</code> call or by {@link IMuxer#close()}.
+	 * @param queueDepth maximum number of queued frames, 0 to encode synchronously (default)
+	 * @param policy what to do with frames beyond the queue depth; dropped video frames leave a gap in the timeline. Audio encoders only accept
+	 * {@link OverflowPolicy#BLOCK} and {@link OverflowPolicy#FAIL}, as samples are cut into codec frames on the worker and dropping some would shift all later audio
+	 * @return this builder
+	 */
+	I async(int queueDepth, OverflowPolicy policy);
+
+	/**
+	 * Sets the number of codec threads. When the library-wide {@link ICpuBudget} is enabled the threads are leased from it
+	 * while the codec is open, and fewer threads are used if the budget is short.
+	 * @param threads number of codec threads, 0 to let the codec choose, or to take a fair share of the CPU budget when it is enabled (default)
+	 * @param type threading method
+	 * @return this builder
+	 */
+	I threads(int threads, ThreadType type);
 }
@@ -52,6 +52,7 @@ public interface IMuxerBuilder {
 
 	/**
 	 * Create a muxer from this builder. Remember to close the muxer by calling {@link IMuxer#close()} after using.
+	 * The file is written natively by libavformat, without going through {@link ISeekableOutput} callbacks.
 	 * @param outputFile output file
 	 * @return muxer instance
 	 */
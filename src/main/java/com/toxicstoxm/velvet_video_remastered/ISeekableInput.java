@@ -1,5 +1,7 @@
 package com.toxicstoxm.velvet_video_remastered;
 
+import java.nio.ByteBuffer;
+
 /** Input stream with capability of seeking. */
 public interface ISeekableInput extends AutoCloseable {
 
@@ -12,6 +14,25 @@ public interface ISeekableInput extends AutoCloseable {
      */
     int read(byte[] bytes);
 
+    /**
+     * Read bytes from the input stream into the remaining space of the buffer, advancing its position.
+     * The demuxer passes direct buffers wrapping its native I/O buffer, so implementations reading straight into the buffer
+     * (for example with {@link java.nio.channels.FileChannel#read(ByteBuffer)}) avoid any intermediate copy.
+     * The default implementation reads through {@link #read(byte[])}.
+     *
+     * @param buffer buffer to read data to
+     * @return number of bytes read, or -1 at the end of the stream
+     * @throws VelvetVideoException if IO error occurs
+     */
+    default int read(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        int read = read(bytes);
+        if (read > 0) {
+            buffer.put(bytes, 0, read);
+        }
+        return read;
+    }
+
     /**
      * Seeks read pointer to the specified position.
      * @param position offset from the stream start to put the read pointer
@@ -1,5 +1,7 @@
 package com.toxicstoxm.velvet_video_remastered;
 
+import java.nio.ByteBuffer;
+
 /** Input stream with capability of seeking. */
 public interface ISeekableOutput extends AutoCloseable {
 
@@ -12,7 +14,22 @@ public interface ISeekableOutput extends AutoCloseable {
     void write(byte[] bytes);
 
     /**
-     * Seeks the write pointer to a specified position.
+     * Writes the remaining bytes of the buffer into the output stream, advancing the buffer's position.
+     * The muxer passes read-only direct buffers wrapping its native I/O buffer, valid only during the call, so implementations
+     * writing straight from the buffer (for example with {@link java.nio.channels.FileChannel#write(ByteBuffer)}) avoid any intermediate copy.
+     * The default implementation writes through {@link #write(byte[])}.
+     *
+     * @param buffer buffer to write data from
+     * @throws VelvetVideoException if IO error occurs
+     */
+    default void write(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        write(bytes);
+    }
+
+    /**
+     * Seeks the write pointer to a specified position. Positions beyond 2 GB must be supported for large outputs.
      * @param position position to seek in bytes from the stream beginning
      */
     void seek(long position);
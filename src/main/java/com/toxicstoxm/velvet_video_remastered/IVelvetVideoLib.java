@@ -1,11 +1,7 @@
 package com.toxicstoxm.velvet_video_remastered;
 
-import com.toxicstoxm.velvet_video_remastered.impl.FileSeekableInput;
-
 import javax.sound.sampled.AudioFormat;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.util.List;
 
 /**
@@ -31,6 +27,21 @@ public interface IVelvetVideoLib {
 	 */
 	List<String> formats(Direction dir);
 
+	/**
+	 * Configures slice-parallel pixel format conversion, used by both encoders and decoders. Frames of at least
+	 * <code>minPixels</code> pixels are converted in horizontal bands on a shared pool of <code>parallelism</code> threads,
+	 * unless the conversion scales vertically. By default parallelism is the number of available processors and the threshold is 2560x1440.
+	 *
+	 * @param parallelism number of conversion threads, 1 to always convert on the calling thread
+	 * @param minPixels minimal frame size (width * height) converted in parallel
+	 */
+	void conversionParallelism(int parallelism, long minPixels);
+
+	/**
+	 * @return library-wide budget of encoder threads, disabled until {@link ICpuBudget#cores(int)} is set
+	 */
+	ICpuBudget cpuBudget();
+
 	/**
 	 * Create a video encoder builder.
 	 *
@@ -71,6 +82,14 @@ public interface IVelvetVideoLib {
 	 */
 	IMuxerBuilder muxer(String format);
 
+	/**
+	 * Create a demuxer builder to configure decoding before opening the demuxer with
+	 * {@link IDemuxerBuilder#build(File)} or {@link IDemuxerBuilder#build(ISeekableInput)}
+	 *
+	 * @return demuxer builder instance
+	 */
+	IDemuxerBuilder demuxer();
+
 	 /**
      * Open a demuxer to demux from the specified seekable input stream. The demuxer should
      * be closed by calling {@link IDemuxer#close()} after using.
@@ -78,7 +97,9 @@ public interface IVelvetVideoLib {
      * @param input input
      * @return demuxer instance
      */
-    IDemuxer demuxer(ISeekableInput input);
+    default IDemuxer demuxer(ISeekableInput input) {
+    	return demuxer().build(input);
+    }
 
 	/**
 	 * Open a demuxer to demux from the specified file
@@ -87,10 +108,6 @@ public interface IVelvetVideoLib {
 	 * @return demuxer instance
 	 */
 	default IDemuxer demuxer(File file) {
-		try {
-			return demuxer(new FileSeekableInput(new FileInputStream(file)));
-		} catch (FileNotFoundException e) {
-			throw new VelvetVideoException(e);
-		}
+		return demuxer().build(file);
 	}
 }
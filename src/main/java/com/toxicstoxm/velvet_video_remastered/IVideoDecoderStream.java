@@ -3,4 +3,59 @@ package com.toxicstoxm.velvet_video_remastered;
 /**
  * Demuxer's video decoder stream
  */
-public interface IVideoDecoderStream extends IDecoderStream<IVideoDecoderStream, IVideoFrame, IVideoStreamProperties> {}
+public interface IVideoDecoderStream extends IDecoderStream<IVideoDecoderStream, IVideoFrame, IVideoStreamProperties> {
+
+	/**
+	 * Enables or disables planes-only decoding. In this mode decoded frames are not converted to images:
+	 * {@link IVideoFrame#image()} returns null and pixel data is available through {@link IVideoFrame#planes()} only.
+	 * @param planesOnly true to skip image conversion
+	 * @return this stream
+	 */
+	IVideoDecoderStream planesOnly(boolean planesOnly);
+
+	/**
+	 * Makes the stream take frame images from a bounded pool instead of allocating a new image for each frame.
+	 * Every frame must be given back with {@link IVideoFrame#release()} once its image is no longer used; after that the image will be overwritten by subsequent frames.
+	 * @param size maximum number of images in the pool, 0 to disable pooling
+	 * @param block when all images are in use, true to wait until a frame is released (from another thread), false to throw {@link VelvetVideoException}
+	 * @return this stream
+	 */
+	IVideoDecoderStream imagePool(int size, boolean block);
+
+	/**
+	 * Sets the pixel format of frame images. Decoded pixels are converted straight to the requested layout.
+	 * {@link PixelFormat#GRAY8} copies the luma plane of YUV sources without any conversion, and {@link PixelFormat#NATIVE} produces no images at all.
+	 * @param format image pixel format, {@link PixelFormat#BGR24} by default
+	 * @return this stream
+	 */
+	IVideoDecoderStream outputFormat(PixelFormat format);
+
+	/**
+	 * Scales frame images while converting them, in the same pass as the pixel format conversion.
+	 * A derived dimension keeps the aspect ratio of the cropped frame, whichever of {@link #crop(int, int, int, int)} and this method is called first.
+	 * @param width target width, or a non-positive value to derive it from height keeping the aspect ratio
+	 * @param height target height, or a non-positive value to derive it from width keeping the aspect ratio
+	 * @param algorithm scaling algorithm
+	 * @return this stream
+	 */
+	IVideoDecoderStream scale(int width, int height, ScaleAlgorithm algorithm);
+
+	/**
+	 * Restricts frame images to a rectangle of the decoded frame. Cropping happens in the conversion pass, before scaling.
+	 * For subsampled formats the offsets are aligned down to the chroma grid.
+	 * @param x left edge
+	 * @param y top edge
+	 * @param width rectangle width
+	 * @param height rectangle height
+	 * @return this stream
+	 */
+	IVideoDecoderStream crop(int x, int y, int width, int height);
+
+	/**
+	 * Sets which frames are decoded. Skipping frames makes keyframe sampling and preview scrubbing much faster than a full decode.
+	 * While frames are skipped, seeking lands on the first decoded frame at or after the target instead of the exact frame.
+	 * @param level decode level, {@link DecodeLevel#ALL} by default
+	 * @return this stream
+	 */
+	IVideoDecoderStream decodeLevel(DecodeLevel level);
+}
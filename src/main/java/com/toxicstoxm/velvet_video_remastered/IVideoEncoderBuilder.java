@@ -12,4 +12,24 @@ public interface IVideoEncoderBuilder extends IEncoderBuilder<IVideoEncoderBuild
 	 * @return this builder
 	 */
 	IVideoEncoderBuilder dimensions(int width, int height);
+
+	/**
+	 * Sets the number of slices per frame. Slices let {@link ThreadType#SLICE} threading encode a single frame in parallel
+	 * without the latency of frame threading, at a small cost in compression.
+	 * @param slices number of slices, 0 to let the codec choose (default)
+	 * @return this builder
+	 */
+	IVideoEncoderBuilder slices(int slices);
+
+	/**
+	 * Enables chunked encoding for long offline encodes. Frames are split into chunks of consecutive frames, and each chunk is encoded
+	 * on its own encoder instance, several chunks in parallel. Every chunk starts with a keyframe and is a closed GOP sequence; the
+	 * packets are stitched into the stream in order, with the codec extradata of a single encoder.
+	 * Chunks waiting to be encoded keep copies of their frames, so memory use grows with chunk size times parallelism.
+	 * Chunk encoders use one thread each unless {@link #threads(int, ThreadType)} is set. Filters are not supported in this mode.
+	 * @param chunkFrames number of frames per chunk, at least a few GOPs long; 0 to disable chunking (default)
+	 * @param parallelism number of chunks encoded at the same time
+	 * @return this builder
+	 */
+	IVideoEncoderBuilder chunked(int chunkFrames, int parallelism);
 }
\ No newline at end of file
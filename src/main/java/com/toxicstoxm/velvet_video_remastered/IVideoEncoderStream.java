@@ -1,6 +1,7 @@
 package com.toxicstoxm.velvet_video_remastered;
 
 import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
 
 /**
  * Muxer's video stream.
@@ -19,4 +20,23 @@ public interface IVideoEncoderStream {
 	 * @param duration frame duration, in codec time base units.
 	 */
 	void encode(BufferedImage image, int duration);
+
+	/**
+	 * Add a raw video frame with default duration for encoding. Equivalent to <code>encode(format, planes, strides, 1)</code>
+	 * @param format pixel format of the planes
+	 * @param planes plane buffers, read from their positions
+	 * @param strides distance between rows of each plane, in bytes
+	 */
+	void encode(PixelFormat format, ByteBuffer[] planes, int[] strides);
+
+	/**
+	 * Add a raw video frame with the specified duration for encoding. Frame dimensions are the ones set with {@link IVideoEncoderBuilder#dimensions(int, int)}.
+	 * When the format is the codec's own pixel format, the planes are copied straight into the encoder frame; otherwise they are converted,
+	 * reading direct buffers in place. Off-heap memory can be passed as direct buffers wrapping it.
+	 * @param format pixel format of the planes
+	 * @param planes plane buffers, read from their positions
+	 * @param strides distance between rows of each plane, in bytes
+	 * @param duration frame duration, in codec time base units.
+	 */
+	void encode(PixelFormat format, ByteBuffer[] planes, int[] strides, int duration);
 }
\ No newline at end of file
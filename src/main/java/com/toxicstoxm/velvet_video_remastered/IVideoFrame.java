@@ -1,6 +1,7 @@
 package com.toxicstoxm.velvet_video_remastered;
 
 import java.awt.image.BufferedImage;
+import java.util.List;
 
 /**
  * Decoded video frame.
@@ -8,10 +9,22 @@ import java.awt.image.BufferedImage;
 public interface IVideoFrame extends IDecodedPacket<IVideoDecoderStream> {
 
 	/**
-	 * @return video frame image
+	 * @return video frame image, or null if the stream decodes planes only (see {@link IVideoDecoderStream#planesOnly(boolean)})
 	 */
 	BufferedImage image();
 
+	/**
+	 * Native planes of the decoded frame, laid out as described by {@link #pixelFormat()}. No pixel conversion or copying is involved.
+	 * The plane buffers stay valid until the next frame is decoded from the same stream.
+	 * @return frame planes
+	 */
+	List<IVideoPlane> planes();
+
+	/**
+	 * @return ffmpeg name of the pixel format of {@link #planes()}, for example <code>yuv420p</code>
+	 */
+	String pixelFormat();
+
 	@Override
 	default MediaType type() {
 		return MediaType.Video;
@@ -21,4 +34,4 @@ public interface IVideoFrame extends IDecodedPacket<IVideoDecoderStream> {
 	default IVideoFrame asVideo() {
 		return this;
 	}
-}
\ No newline at end of file
+}
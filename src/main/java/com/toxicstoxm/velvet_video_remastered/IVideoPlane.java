@@ -0,0 +1,24 @@
+package com.toxicstoxm.velvet_video_remastered;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Single plane of a decoded video frame, in the decoder's native pixel layout.
+ */
+public interface IVideoPlane {
+
+	/**
+	 * @return read-only view of the plane's native memory. The view stays valid until the next frame is decoded from the same stream.
+	 */
+	ByteBuffer buffer();
+
+	/**
+	 * @return number of bytes between the starts of two consecutive lines
+	 */
+	int linesize();
+
+	/**
+	 * @return number of lines in this plane
+	 */
+	int lines();
+}
@@ -1,55 +1,150 @@
 package com.toxicstoxm.velvet_video_remastered;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
-public class MemSeekableFile implements ISeekableOutput {
+/**
+ * In-memory file kept off-heap in chunks of 1 MB, usable both as a muxer output and as a demuxer input.
+ * Its content can be read back without copying through {@link #buffers()} or demuxed with {@link #newInput()}, so it is not limited to 2 GB.
+ * Reading and writing through this object share a single position.
+ */
+public class MemSeekableFile implements ISeekableOutput, ISeekableInput {
 
 	private static final int CHUNK = 1024*1024;
 	private long length;
 	private long position;
-	private final List<byte[]> buffers = new ArrayList<>();
+	private final List<ByteBuffer> buffers = new ArrayList<>();
 
 	@Override
 	public void write(byte[] bytes) {
-		long bytesToAllocate = position + bytes.length - (long) buffers.size() * CHUNK;
-		if (bytesToAllocate > 0) {
-			long buffersToAllocate = ((bytesToAllocate - 1)/ CHUNK) * CHUNK + 1;
-			for (int i=0; i<buffersToAllocate; i++)
-				buffers.add(new byte[CHUNK]);
-		}
-		for (int messagepos = 0; messagepos < bytes.length; ) {
-			long chunk = position / CHUNK;
-			long offset = position % CHUNK;
-			long len = Math.min(bytes.length - messagepos, CHUNK - offset);
-			System.arraycopy(bytes, messagepos, buffers.get((int)chunk), (int)offset, (int)len);
+		write(ByteBuffer.wrap(bytes));
+	}
+
+	@Override
+	public void write(ByteBuffer buffer) {
+		long end = position + buffer.remaining();
+		while ((long) buffers.size() * CHUNK < end)
+			buffers.add(ByteBuffer.allocateDirect(CHUNK));
+		while (buffer.hasRemaining()) {
+			int offset = (int) (position % CHUNK);
+			int len = Math.min(buffer.remaining(), CHUNK - offset);
+			buffers.get((int) (position / CHUNK)).put(offset, buffer, buffer.position(), len);
+			buffer.position(buffer.position() + len);
 			position += len;
-			messagepos += len;
 		}
 		if (position > length)
 			length = position;
 	}
 
+	@Override
+	public int read(byte[] bytes) {
+		return read(ByteBuffer.wrap(bytes));
+	}
+
+	@Override
+	public int read(ByteBuffer buffer) {
+		int read = read(position, buffer);
+		if (read > 0)
+			position += read;
+		return read;
+	}
+
+	private int read(long from, ByteBuffer buffer) {
+		if (from >= length)
+			return buffer.hasRemaining() ? -1 : 0;
+		int total = (int) Math.min(buffer.remaining(), length - from);
+		for (int read = 0; read < total; ) {
+			int offset = (int) (from % CHUNK);
+			int len = Math.min(total - read, CHUNK - offset);
+			buffer.put(buffer.position(), buffers.get((int) (from / CHUNK)), offset, len);
+			buffer.position(buffer.position() + len);
+			from += len;
+			read += len;
+		}
+		return total;
+	}
+
 	@Override
 	public void seek(long position) {
-		if (position > length)
+		if (position < 0 || position > length)
 			throw new IllegalArgumentException();
 		this.position = position;
 	}
 
+	@Override
+	public long size() {
+		return length;
+	}
+
+	/**
+	 * Does nothing, the content stays available after the muxer or demuxer using this file is closed.
+	 */
 	@Override
 	public void close() {
 	}
 
-	public byte[] toBytes() {
-		byte[] result = new byte[(int) length];
-		for (int pos = 0; pos < length; ) {
-			long chunk = pos / CHUNK;
-			long offset = pos % CHUNK;
-			long len = Math.min(length - pos, CHUNK - offset);
-			System.arraycopy(buffers.get((int)chunk), (int)offset, result, pos, (int)len);
-			pos += (int) len;
+	/**
+	 * @return read-only views of the content chunks in order, without copying; they reflect later writes within their range
+	 */
+	public List<ByteBuffer> buffers() {
+		List<ByteBuffer> views = new ArrayList<>();
+		for (long pos = 0; pos < length; pos += CHUNK) {
+			views.add(buffers.get((int) (pos / CHUNK)).slice(0, (int) Math.min(CHUNK, length - pos)).asReadOnlyBuffer());
 		}
-		return result;
+		return views;
+	}
+
+	/**
+	 * Creates an input reading this file's content from the beginning, with a position of its own.
+	 * The content is not copied, so the file must not be written while the input is in use.
+	 * @return new input over this file
+	 */
+	public ISeekableInput newInput() {
+		return new ISeekableInput() {
+			private long inputPosition;
+
+			@Override
+			public int read(byte[] bytes) {
+				return read(ByteBuffer.wrap(bytes));
+			}
+
+			@Override
+			public int read(ByteBuffer buffer) {
+				int read = MemSeekableFile.this.read(inputPosition, buffer);
+				if (read > 0)
+					inputPosition += read;
+				return read;
+			}
+
+			@Override
+			public void seek(long position) {
+				if (position < 0 || position > length)
+					throw new IllegalArgumentException();
+				this.inputPosition = position;
+			}
+
+			@Override
+			public long size() {
+				return length;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	/**
+	 * Copies the whole content into a single array.
+	 * @return file content
+	 * @throws VelvetVideoException if the content does not fit into an array; use {@link #buffers()} for such files
+	 */
+	public byte[] toBytes() {
+		if (length > Integer.MAX_VALUE - 8)
+			throw new VelvetVideoException("In-memory file of " + length + " bytes is too large for a byte array");
+		ByteBuffer result = ByteBuffer.allocate((int) length);
+		read(0, result);
+		return result.array();
 	}
 }
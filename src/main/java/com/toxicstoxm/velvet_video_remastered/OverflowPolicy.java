@@ -0,0 +1,23 @@
+package com.toxicstoxm.velvet_video_remastered;
+
+/**
+ * What happens when an element is added to a full bounded queue.
+ */
+public enum OverflowPolicy {
+    /**
+     * Throw {@link VelvetVideoException}.
+     */
+    FAIL,
+    /**
+     * Discard the oldest queued element to make room.
+     */
+    DROP_OLDEST,
+    /**
+     * Discard the element being added.
+     */
+    DROP_NEWEST,
+    /**
+     * Wait until there is room. Only valid for queues drained by another thread, such as the input queue of asynchronous encoders.
+     */
+    BLOCK
+}
@@ -0,0 +1,75 @@
+package com.toxicstoxm.velvet_video_remastered;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Pixel layout of decoded video frame images and of raw frame planes passed to encoders.
+ * Formats without a {@link BufferedImage} type are only available for raw planes.
+ */
+public enum PixelFormat {
+    /**
+     * 8-bit BGR, {@link BufferedImage#TYPE_3BYTE_BGR}. This is the default.
+     */
+    BGR24(BufferedImage.TYPE_3BYTE_BGR),
+    /**
+     * 8-bit ABGR, {@link BufferedImage#TYPE_4BYTE_ABGR}
+     */
+    ABGR(BufferedImage.TYPE_4BYTE_ABGR),
+    /**
+     * Packed int ARGB, {@link BufferedImage#TYPE_INT_ARGB}
+     */
+    INT_ARGB(BufferedImage.TYPE_INT_ARGB),
+    /**
+     * Packed int RGB, {@link BufferedImage#TYPE_INT_RGB}
+     */
+    INT_RGB(BufferedImage.TYPE_INT_RGB),
+    /**
+     * Packed int BGR, {@link BufferedImage#TYPE_INT_BGR}
+     */
+    INT_BGR(BufferedImage.TYPE_INT_BGR),
+    /**
+     * 8-bit luma, {@link BufferedImage#TYPE_BYTE_GRAY}. Taken as is from the luma plane of YUV sources.
+     */
+    GRAY8(BufferedImage.TYPE_BYTE_GRAY),
+    /**
+     * Packed 8-bit RGB, one plane. Raw planes only.
+     */
+    RGB24(BufferedImage.TYPE_CUSTOM),
+    /**
+     * Packed 8-bit RGBA, one plane. Raw planes only.
+     */
+    RGBA(BufferedImage.TYPE_CUSTOM),
+    /**
+     * Packed 8-bit BGRA, one plane. Raw planes only.
+     */
+    BGRA(BufferedImage.TYPE_CUSTOM),
+    /**
+     * Planar YUV 4:2:0: Y, U and V planes, chroma planes subsampled 2x2. Raw planes only.
+     */
+    YUV420P(BufferedImage.TYPE_CUSTOM),
+    /**
+     * YUV 4:2:0 with a Y plane and an interleaved UV plane. Raw planes only.
+     */
+    NV12(BufferedImage.TYPE_CUSTOM),
+    /**
+     * Planar YUV 4:4:4: Y, U and V planes of full size. Raw planes only.
+     */
+    YUV444P(BufferedImage.TYPE_CUSTOM),
+    /**
+     * Decoder's own pixel format, no image is produced. Pixel data is available through {@link IVideoFrame#planes()}.
+     */
+    NATIVE(BufferedImage.TYPE_CUSTOM);
+
+    private final int imageType;
+
+    PixelFormat(int imageType) {
+        this.imageType = imageType;
+    }
+
+    /**
+     * @return {@link BufferedImage} type of frame images in this format, {@link BufferedImage#TYPE_CUSTOM} if there are no images
+     */
+    public int imageType() {
+        return imageType;
+    }
+}
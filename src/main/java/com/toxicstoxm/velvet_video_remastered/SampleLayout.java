@@ -0,0 +1,19 @@
+package com.toxicstoxm.velvet_video_remastered;
+
+/**
+ * Layout of decoded audio samples.
+ */
+public enum SampleLayout {
+    /**
+     * Interleaved samples in the stream's audio format, {@link IAudioStreamProperties#format()}. This is the default.
+     */
+    PCM,
+    /**
+     * Interleaved 32-bit floats in native byte order.
+     */
+    FLOAT_INTERLEAVED,
+    /**
+     * 32-bit floats in native byte order, channel after channel: all samples of the first channel, then all samples of the second one, and so on.
+     */
+    FLOAT_PLANAR
+}
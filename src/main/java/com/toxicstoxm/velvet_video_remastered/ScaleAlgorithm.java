@@ -0,0 +1,13 @@
+package com.toxicstoxm.velvet_video_remastered;
+
+/**
+ * Scaling algorithm used when decoded frames are resized.
+ */
+public enum ScaleAlgorithm {
+    FAST_BILINEAR,
+    BILINEAR,
+    BICUBIC,
+    POINT,
+    AREA,
+    LANCZOS
+}
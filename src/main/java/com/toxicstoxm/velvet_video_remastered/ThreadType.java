@@ -0,0 +1,19 @@
+package com.toxicstoxm.velvet_video_remastered;
+
+/**
+ * Codec threading method.
+ */
+public enum ThreadType {
+    /**
+     * Decode or encode several frames in parallel. Adds a delay of one frame per thread.
+     */
+    FRAME,
+    /**
+     * Process slices of a single frame in parallel. Only effective when the bitstream has several slices per frame.
+     */
+    SLICE,
+    /**
+     * Let the codec use whichever of the two it supports, preferring frame threading.
+     */
+    FRAME_AND_SLICE
+}
@@ -1,6 +1,8 @@
 package com.toxicstoxm.velvet_video_remastered.impl;
 
 import com.toxicstoxm.velvet_video_remastered.IVideoDecoderStream;
+import com.toxicstoxm.velvet_video_remastered.OverflowPolicy;
+import com.toxicstoxm.velvet_video_remastered.ThreadType;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -16,6 +18,10 @@ abstract class AbstractEncoderBuilderImpl<I> {
 	boolean enableExperimental;
 	IVideoDecoderStream decoder;
 	String filter;
+	int asyncDepth;
+	OverflowPolicy asyncPolicy = OverflowPolicy.BLOCK;
+	int threads;
+	ThreadType threadType;
 
 	AbstractEncoderBuilderImpl(String codec) {
 		this.codec = codec;
@@ -67,4 +73,16 @@ abstract class AbstractEncoderBuilderImpl<I> {
 		return self();
 	}
 
+	public I async(int queueDepth, OverflowPolicy policy) {
+		this.asyncDepth = queueDepth;
+		this.asyncPolicy = policy;
+		return self();
+	}
+
+	public I threads(int threads, ThreadType type) {
+		this.threads = threads;
+		this.threadType = type;
+		return self();
+	}
+
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.toxicstoxm.velvet_video_remastered.impl;
 
 import com.toxicstoxm.velvet_video_remastered.IAudioEncoderBuilder;
+import com.toxicstoxm.velvet_video_remastered.OverflowPolicy;
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
 import org.jetbrains.annotations.NotNull;
 
 import javax.sound.sampled.AudioFormat;
@@ -15,4 +17,12 @@ class AudioEncoderBuilderImpl extends AbstractEncoderBuilderImpl<IAudioEncoderBu
 		framerate((int)inputFormat.getSampleRate());
 	}
 
+	@Override
+	public IAudioEncoderBuilder async(int queueDepth, OverflowPolicy policy) {
+		if (policy == OverflowPolicy.DROP_OLDEST || policy == OverflowPolicy.DROP_NEWEST) {
+			throw new VelvetVideoException("Audio encoders cannot drop queued samples, use OverflowPolicy.BLOCK or OverflowPolicy.FAIL");
+		}
+		return super.async(queueDepth, policy);
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.toxicstoxm.velvet_video_remastered.impl;
+
+import com.toxicstoxm.velvet_video_remastered.ICpuBudget;
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
+import lombok.Value;
+import lombok.experimental.Accessors;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Never leases more threads than there are cores. Encoders share the cores evenly among all open encoders, including the ones
+ * that have not opened their codec yet, and wait for threads to be released when every core is leased.
+ */
+class CpuBudgetImpl implements ICpuBudget {
+
+	@Accessors(fluent = true)
+	@Value
+	static class Lease {
+		static final Lease NONE = new Lease(0, null);
+		int threads;
+		Thread owner;
+	}
+
+	private int cores;
+	private int leased;
+	private int encoders;
+	private final Map<Thread, Integer> held = new HashMap<>();
+
+	@Override
+	public synchronized void cores(int cores) {
+		if (cores < 0) {
+			throw new VelvetVideoException("CPU budget cannot be negative");
+		}
+		this.cores = cores;
+		notifyAll();
+	}
+
+	@Override
+	public synchronized int cores() {
+		return cores;
+	}
+
+	@Override
+	public synchronized int leased() {
+		return leased;
+	}
+
+	/**
+	 * Counts an encoder in the fair share until {@link #unregister()}.
+	 */
+	synchronized void register() {
+		encoders++;
+	}
+
+	synchronized void unregister() {
+		encoders--;
+	}
+
+	/**
+	 * Leases encoder threads, waiting while every core is leased.
+	 * @param requested number of threads asked for, 0 for a fair share of the cores among the open encoders
+	 * @return leased threads, {@link Lease#NONE} if the budget is disabled
+	 * @throws VelvetVideoException if every core is leased by the calling thread itself, so that waiting would never end
+	 */
+	synchronized Lease lease(int requested) {
+		Thread thread = Thread.currentThread();
+		while (cores > 0 && leased >= cores) {
+			if (held.getOrDefault(thread, 0) == leased) {
+				throw new VelvetVideoException("CPU budget of " + cores + " cores is leased by encoders opened on this thread, raise it or open fewer encoders at a time");
+			}
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new VelvetVideoException(e);
+			}
+		}
+		if (cores == 0) {
+			return Lease.NONE;
+		}
+		int share = requested > 0 ? requested : Math.max(1, cores / Math.max(1, encoders));
+		int granted = Math.min(share, cores - leased);
+		leased += granted;
+		held.merge(thread, granted, Integer::sum);
+		return new Lease(granted, thread);
+	}
+
+	synchronized void release(Lease lease) {
+		if (lease.threads() == 0) {
+			return;
+		}
+		leased -= lease.threads();
+		held.computeIfPresent(lease.owner(), (thread, threads) -> threads == lease.threads() ? null : threads - lease.threads());
+		notifyAll();
+	}
+}
@@ -28,6 +28,15 @@ public class FileSeekableInput implements ISeekableInput {
         }
     }
 
+    @Override
+    public int read(ByteBuffer buffer) {
+        try {
+            return channel.read(buffer);
+        } catch (IOException e) {
+            throw new VelvetVideoException(e);
+        }
+    }
+
     @Override
     public void seek(long position) {
         try {
@@ -28,6 +28,17 @@ public class FileSeekableOutput implements ISeekableOutput {
         }
     }
 
+    @Override
+    public void write(ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new VelvetVideoException(e);
+        }
+    }
+
     @Override
     public void seek(long position) {
         try {
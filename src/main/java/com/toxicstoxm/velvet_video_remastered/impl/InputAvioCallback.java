@@ -0,0 +1,56 @@
+package com.toxicstoxm.velvet_video_remastered.impl;
+
+import com.toxicstoxm.velvet_video_remastered.ISeekableInput;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.LibAVFormat;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.LibAVUtil;
+import jnr.ffi.Pointer;
+
+/**
+ * AVIO callbacks reading from a custom {@link ISeekableInput}. Positions are 64-bit, the callback tracks them itself as inputs do not report theirs.
+ */
+class InputAvioCallback implements LibAVFormat.ICustomAvioCallback {
+
+    /** returned for seek operations the input cannot perform, errors must not be thrown from native callbacks */
+    static final int UNSUPPORTED = -1;
+
+    private final ISeekableInput input;
+    private long position;
+
+    InputAvioCallback(ISeekableInput input) {
+        this.input = input;
+    }
+
+    @Override
+    public int read_packet(Pointer opaque, Pointer buf, int buf_size) {
+        int bts = input.read(JNRHelper.buffer(buf, buf_size));
+        if (bts < 0) {
+            return LibAVUtil.AVERROR_EOF;
+        }
+        position += bts;
+        return bts;
+    }
+
+    @Override
+    public long seek(Pointer opaque, long offset, int whence) {
+        long target;
+        switch (whence & ~LibAVFormat.AVSEEK_FORCE) {
+            case LibAVFormat.SEEK_SET -> target = offset;
+            case LibAVFormat.SEEK_CUR -> target = position + offset;
+            case LibAVFormat.SEEK_END -> target = input.size() + offset;
+            case LibAVFormat.AVSEEK_SIZE -> {
+                return input.size();
+            }
+            default -> {
+                return UNSUPPORTED;
+            }
+        }
+        try {
+            input.seek(target);
+        } catch (IllegalArgumentException e) {
+            // position outside of the input, it stays where it was
+            return UNSUPPORTED;
+        }
+        position = target;
+        return position;
+    }
+}
@@ -1,5 +1,6 @@
 package com.toxicstoxm.velvet_video_remastered.impl;
 
+import com.kenai.jffi.MemoryIO;
 import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
 import com.toxicstoxm.velvet_video_remastered.tools.logging.VelvetVideoLogAreaBundle;
 import jnr.ffi.LibraryLoader;
@@ -11,6 +12,8 @@ import jnr.ffi.provider.ParameterFlags;
 import org.jetbrains.annotations.NotNull;
 
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -62,6 +65,28 @@ public class JNRHelper {
 		return member.getMemory().slice(member.offset());
 	}
 
+	/**
+	 * Wraps native memory into a direct byte buffer without copying. The buffer is only valid while the native memory is.
+	 */
+	public static @NotNull ByteBuffer buffer(@NotNull Pointer pointer, long size) {
+		return MemoryIO.getInstance().newDirectByteBuffer(pointer.address(), Math.toIntExact(size)).order(ByteOrder.nativeOrder());
+	}
+
+	public static @NotNull ByteBuffer readOnlyBuffer(@NotNull Pointer pointer, long size) {
+		return buffer(pointer, size).asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Native pointer to the remaining content of a direct buffer, without copying.
+	 */
+	public static @NotNull Pointer pointer(@NotNull ByteBuffer buffer) {
+		if (!buffer.isDirect()) {
+			throw new VelvetVideoException("Native pointers are only available for direct buffers");
+		}
+		long address = MemoryIO.getInstance().getDirectBufferAddress(buffer) + buffer.position();
+		return Pointer.wrap(Runtime.getSystemRuntime(), address, buffer.remaining());
+	}
+
 	public static int preload(String libShortName, int libVersion) {
 		try {
 			System.loadLibrary(libShortName);
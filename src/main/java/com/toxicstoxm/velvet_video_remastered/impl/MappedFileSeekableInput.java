@@ -0,0 +1,104 @@
+package com.toxicstoxm.velvet_video_remastered.impl;
+
+import com.toxicstoxm.velvet_video_remastered.ISeekableInput;
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Seekable input reading from a memory-mapped file. Reads are plain copies from the mapping, seeks only move the read pointer,
+ * and the pages are shared through the OS page cache by all inputs mapping the same file.
+ * The file is mapped in windows of 256 MB, so files of any size can be read; a window is mapped when the read pointer first enters it.
+ */
+public class MappedFileSeekableInput implements ISeekableInput {
+
+    private static final long WINDOW = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart = -1;
+    private long position;
+
+    public MappedFileSeekableInput(@NotNull File file) {
+        try {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.size = channel.size();
+        } catch (IOException e) {
+            throw new VelvetVideoException(e);
+        }
+    }
+
+    @Override
+    public int read(byte[] bytes) {
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public int read(@NotNull ByteBuffer buffer) {
+        if (position >= size) {
+            return buffer.hasRemaining() ? -1 : 0;
+        }
+        int total = (int) Math.min(buffer.remaining(), size - position);
+        for (int read = 0; read < total; ) {
+            ByteBuffer mapped = windowAt(position);
+            int offset = (int) (position - windowStart);
+            int len = Math.min(total - read, mapped.capacity() - offset);
+            buffer.put(buffer.position(), mapped, offset, len);
+            buffer.position(buffer.position() + len);
+            position += len;
+            read += len;
+        }
+        return total;
+    }
+
+    private @NotNull MappedByteBuffer windowAt(long pos) {
+        long start = pos - pos % WINDOW;
+        if (start != windowStart) {
+            try {
+                window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, size - start));
+                windowStart = start;
+            } catch (IOException e) {
+                throw new VelvetVideoException(e);
+            }
+        }
+        return window;
+    }
+
+    /**
+     * @param position new read position, from 0 up to the file size; the size itself means end of file
+     * @throws IllegalArgumentException if the position is outside of the file
+     */
+    @Override
+    public void seek(long position) {
+        if (position < 0 || position > size) {
+            throw new IllegalArgumentException("Seek position " + position + " outside of file of " + size + " bytes");
+        }
+        this.position = position;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Closes the file. The current window is unmapped once it is garbage collected.
+     */
+    @Override
+    public void close() {
+        window = null;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new VelvetVideoException(e);
+        }
+    }
+
+}
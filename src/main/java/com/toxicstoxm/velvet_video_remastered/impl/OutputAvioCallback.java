@@ -0,0 +1,42 @@
+package com.toxicstoxm.velvet_video_remastered.impl;
+
+import com.toxicstoxm.velvet_video_remastered.ISeekableOutput;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.LibAVFormat;
+import jnr.ffi.Pointer;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * AVIO callbacks writing to a custom {@link ISeekableOutput}. Positions are 64-bit, the callback tracks them itself as outputs do not report theirs.
+ */
+class OutputAvioCallback implements LibAVFormat.ICustomAvioCallback {
+
+    private final ISeekableOutput output;
+    private long position;
+
+    OutputAvioCallback(ISeekableOutput output) {
+        this.output = output;
+    }
+
+    @Contract("_, _, _ -> param3")
+    @Override
+    public int read_packet(Pointer opaque, @NotNull Pointer buf, int buf_size) {
+        output.write(JNRHelper.readOnlyBuffer(buf, buf_size));
+        position += buf_size;
+        return buf_size;
+    }
+
+    @Override
+    public long seek(Pointer opaque, long offset, int whence) {
+        // outputs do not report their size, so AVSEEK_SIZE and SEEK_END are unsupported
+        switch (whence & ~LibAVFormat.AVSEEK_FORCE) {
+            case LibAVFormat.SEEK_SET -> position = offset;
+            case LibAVFormat.SEEK_CUR -> position += offset;
+            default -> {
+                return InputAvioCallback.UNSUPPORTED;
+            }
+        }
+        output.seek(position);
+        return position;
+    }
+}
@@ -17,13 +17,24 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -46,6 +57,7 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 
     private final LibAVCodec libavcodec = JNRHelper.load(LibAVCodec.class, Libraries.avcodec, Libraries.avcodec_version);
     private final LibAVFormat libavformat = JNRHelper.load(LibAVFormat.class, Libraries.avformat, Libraries.avformat_version);
+    private final CpuBudgetImpl cpuBudget = new CpuBudgetImpl();
 
     private static volatile IVelvetVideoLib instance;
 
@@ -86,6 +98,16 @@ public class VelvetVideoLib implements IVelvetVideoLib {
     	return libavformat.formats(dir);
     }
 
+    @Override
+    public ICpuBudget cpuBudget() {
+    	return cpuBudget;
+    }
+
+    @Override
+    public void conversionParallelism(int parallelism, long minPixels) {
+    	SliceScaler.configure(parallelism, minPixels);
+    }
+
     @Override
     public IVideoEncoderBuilder videoEncoder(String codec) {
         return new VideoEncoderBuilderImpl(codec);
@@ -120,6 +142,13 @@ public class VelvetVideoLib implements IVelvetVideoLib {
         formatCtx.pb.set(avioCtx);
     }
 
+    /**
+     * Url of a local file for libavformat's file protocol, which then reads or writes it without any Java callbacks.
+     */
+    private static @NotNull String fileUrl(@NotNull File file) {
+        return "file:" + file.getAbsolutePath();
+    }
+
     private @NotNull AVFormatContext createMuxerFormatContext(String format, Map<String, String> metadata) {
         AVOutputFormat outputFmt = libavformat.av_guess_format(format, null, null);
         if (outputFmt == null) {
@@ -237,9 +266,16 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 		protected final String filterString;
 		protected Filters filters;
 		private long nextExpectedPts;
+		protected final AsyncWorker async;
+		protected final int threads;
+		protected final ThreadType threadType;
+		private CpuBudgetImpl.Lease lease = CpuBudgetImpl.Lease.NONE;
+		private boolean globalHeader;
 
         public AbstractEncoderStreamImpl(@NotNull B builder, AVFormatContext formatCtx, Consumer<AVPacket> output) throws VelvetVideoException {
         	super(output);
+			this.threads = builder.threads;
+			this.threadType = builder.threadType;
 			this.codecOpts = libavutil.createDictionary(builder.params);
 			this.filterString = builder.filter;
             this.codec = libavcodec.avcodec_find_encoder_by_name(builder.codec);
@@ -250,20 +286,13 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 
             this.codecCtx = libavcodec.avcodec_alloc_context3(codec);
 			if (codec != null) {
-				if ((formatCtx.oformat.get().flags.get() & LibAVFormat.AVFMT_GLOBALHEADER) != 0 && !codec.name.get().equals("libx265")) {
-					codecCtx.flags.set(codecCtx.flags.get() | LibAVCodec.CODEC_FLAG_GLOBAL_HEADER);
-				}
-				codecCtx.codec_id.set(codec.id.get());
-				codecCtx.codec_type.set(codec.type.get());
-				codecCtx.bit_rate.set(builder.bitrate == null ? 400000 : builder.bitrate);
-				codecCtx.time_base.num.set(builder.timebaseNum == null ? 1 : builder.timebaseNum);
-				codecCtx.time_base.den.set(builder.timebaseDen == null ? 30 : builder.timebaseDen);
-
+				cpuBudget.register();
+				this.globalHeader = (formatCtx.oformat.get().flags.get() & LibAVFormat.AVFMT_GLOBALHEADER) != 0 && !codec.name.get().equals("libx265");
 				if (builder.enableExperimental) {
-					codecCtx.strict_std_compliance.set(-2);
 					formatCtx.strict_std_compliance.set(-2);
 				}
 
+				initContext(codecCtx, builder);
 				initCodecCtx(builder);
 
 				Pointer dictionary = libavutil.createDictionary(builder.metadata);
@@ -278,10 +307,68 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 				this.codecTimeBaseNum = codecCtx.time_base.num.get();
 				this.codecTimeBaseDen = codecCtx.time_base.den.get();
 			}
+			this.async = builder.asyncDepth > 0 ? new AsyncWorker("velvet-video encoder " + stream.index.get(), builder.asyncDepth, builder.asyncPolicy) : null;
         }
 
 		abstract void initCodecCtx(B builder);
 
+		/**
+		 * Applies the builder's codec independent settings to an encoder context, the stream's own one or an additional one encoding the same stream.
+		 */
+		protected void initContext(@NotNull AVCodecContext ctx, @NotNull B builder) {
+			if (globalHeader) {
+				ctx.flags.set(ctx.flags.get() | LibAVCodec.CODEC_FLAG_GLOBAL_HEADER);
+			}
+			ctx.codec_id.set(codec.id.get());
+			ctx.codec_type.set(codec.type.get());
+			ctx.bit_rate.set(builder.bitrate == null ? 400000 : builder.bitrate);
+			ctx.time_base.num.set(builder.timebaseNum == null ? 1 : builder.timebaseNum);
+			ctx.time_base.den.set(builder.timebaseDen == null ? 30 : builder.timebaseDen);
+			if (builder.enableExperimental) {
+				ctx.strict_std_compliance.set(-2);
+			}
+		}
+
+		/**
+		 * Opens the codec with threads leased from the CPU budget.
+		 */
+		protected void openCodec() {
+			openCodec(true);
+		}
+
+		/**
+		 * @param leaseThreads false to open a single-threaded codec that takes nothing from the CPU budget
+		 */
+		protected void openCodec(boolean leaseThreads) {
+			lease = leaseThreads ? cpuBudget.lease(threads) : CpuBudgetImpl.Lease.NONE;
+			int threadCount = !leaseThreads ? 1 : lease.threads() > 0 ? lease.threads() : threads;
+			int res = openContext(codecCtx, threadCount, new Pointer[] {codecOpts});
+			if (res < 0) {
+				releaseThreads();
+			}
+			checkcode(res);
+			codecOpened = true;
+		}
+
+		/**
+		 * @param threadCount encoder threads, 0 to keep the codec's default
+		 * @return result of avcodec_open2
+		 */
+		protected int openContext(@NotNull AVCodecContext ctx, int threadCount, Pointer[] options) {
+			if (threadCount > 0) {
+				ctx.thread_count.set(threadCount);
+			}
+			if (threadType != null) {
+				ctx.thread_type.set(threadTypeFlags(threadType));
+			}
+			return libavcodec.avcodec_open2(ctx, ctx.codec.get(), options);
+		}
+
+		private void releaseThreads() {
+			cpuBudget.release(lease);
+			lease = CpuBudgetImpl.Lease.NONE;
+		}
+
 		protected void submitFrame(AVFrame frame, int duration) {
 			if (filters == null) {
 				encodeFrame(frame);
@@ -320,7 +407,7 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 						new VelvetVideoLogAreaBundle.Encoder()
 				);
 
-                fixEncodedPacketPtsDtsDuration();
+                fixEncodedPacketPtsDtsDuration(packet);
         		if (packet.pts.get() != nextExpectedPts) {
 					logger.warn("Encoder: expected PTS mismatch: expected " + nextExpectedPts + ", actual " + packet.pts.get(), new VelvetVideoLogAreaBundle.Encoder());
         		}
@@ -331,14 +418,28 @@ public class VelvetVideoLib implements IVelvetVideoLib {
             }
         }
 
-		abstract protected void fixEncodedPacketPtsDtsDuration();
+		abstract protected void fixEncodedPacketPtsDtsDuration(AVPacket packet);
+
+		/**
+		 * Waits for all queued frames to be encoded.
+		 */
+		void drain() {
+			if (async != null) {
+				async.finish();
+			}
+		}
 
 		@Override
 		public void close() {
+			drain();
 			if (codecOpened) {
 				submitFrame(null, defaultFrameDuration);
 				libavcodec.avcodec_close(codecCtx);
 				libavcodec.avcodec_free_context(new Pointer[] { Struct.getMemory(codecCtx) });
+				releaseThreads();
+			}
+			if (codec != null) {
+				cpuBudget.unregister();
 			}
 			super.close();
 		}
@@ -348,6 +449,13 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 
 		private VideoFrameHolder frameHolder;
 		private final Map<Long, Integer> frameDurationCache = new HashMap<>();
+		// assigned from the super constructor, must not have initializers
+		private boolean dimensionsSet;
+		private int chunkFrames;
+		private int chunkParallelism;
+		private VideoEncoderBuilderImpl builder;
+		private ChunkedEncoder chunks;
+		private final Map<AVCodecContext, CpuBudgetImpl.Lease> chunkLeases = new ConcurrentHashMap<>();
 
 		public VideoEncoderStreamImpl(VideoEncoderBuilderImpl builder, AVFormatContext formatCtx,
 				Consumer<AVPacket> output) {
@@ -356,10 +464,25 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 
 		@Override
 		void initCodecCtx(@NotNull VideoEncoderBuilderImpl builder) {
-            codecCtx.width.set(builder.width == null ? 1 : builder.width);
-            codecCtx.height.set(builder.height == null ? 1 : builder.height);
+            if (builder.chunkFrames > 0 && builder.filter != null) {
+            	throw new VelvetVideoException("Filters are not supported with chunked encoding");
+            }
+            dimensionsSet = builder.width != null && builder.height != null;
+            this.chunkFrames = builder.chunkFrames;
+            this.chunkParallelism = Math.max(1, builder.chunkParallelism);
+            this.builder = builder;
+            initVideoContext(codecCtx, builder);
+		}
+
+		/**
+		 * Video settings of an encoder context, shared by the stream's context and the chunk encoders.
+		 */
+		private void initVideoContext(@NotNull AVCodecContext ctx, @NotNull VideoEncoderBuilderImpl builder) {
+            ctx.width.set(builder.width == null ? 1 : builder.width);
+            ctx.height.set(builder.height == null ? 1 : builder.height);
+            ctx.slices.set(builder.slices);
             int firstFormat = codec.pix_fmts.get().getInt(0);
-            codecCtx.pix_fmt.set(firstFormat);
+            ctx.pix_fmt.set(firstFormat);
 		}
 
 		@Override
@@ -372,22 +495,89 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 			if (frame != null) {
 				frameDurationCache.put(frame.pts.get(), duration);
 			}
+			if (chunks != null) {
+				if (frame == null) {
+					chunks.close();
+				} else {
+					chunks.submit(frame);
+				}
+				return;
+			}
 			super.submitFrame(frame, duration);
 		}
 
 		@Override
         public void encode(@NotNull BufferedImage image, int duration) {
+			long pts = reservePts(duration);
+			if (async == null) {
+				encodeImage(image, pts, duration);
+			} else {
+				BufferedImage copy = new BufferedImage(image.getColorModel(), image.copyData(null), image.isAlphaPremultiplied(), null);
+				async.submit(() -> encodeImage(copy, pts, duration));
+			}
+		}
+
+		private void encodeImage(@NotNull BufferedImage image, long pts, int duration) {
             int width = image.getWidth();
             int height = image.getHeight();
+            openCodec(width, height);
+            if (frameHolder == null) {
+            	frameHolder = new VideoFrameHolder(width, height, AVPixelFormat.avformatOf(image.getType()), codecCtx.pix_fmt.get(), stream.time_base, true);
+            }
+            submitPixels(frameHolder.setPixels(image), pts, duration);
+        }
+
+		@Override
+		public void encode(PixelFormat format, ByteBuffer[] planes, int[] strides) {
+			encode(format, planes, strides, 1);
+		}
+
+		@Override
+		public void encode(@NotNull PixelFormat format, ByteBuffer[] planes, int[] strides, int duration) {
+			if (format == PixelFormat.NATIVE) {
+				throw new VelvetVideoException("Raw frames need an explicit pixel format");
+			}
+			if (!dimensionsSet) {
+				throw new VelvetVideoException("Raw frame encoding needs the frame dimensions set with IVideoEncoderBuilder.dimensions()");
+			}
+			long pts = reservePts(duration);
+			if (async == null) {
+				encodePlanes(format, planes, strides, pts, duration);
+			} else {
+				ByteBuffer[] copies = new ByteBuffer[planes.length];
+				for (int p = 0; p < planes.length; p++) {
+					copies[p] = ByteBuffer.allocate(planes[p].remaining()).put(planes[p].duplicate()).flip();
+				}
+				int[] stridesCopy = strides.clone();
+				async.submit(() -> encodePlanes(format, copies, stridesCopy, pts, duration));
+			}
+		}
 
+		private void encodePlanes(PixelFormat format, ByteBuffer[] planes, int[] strides, long pts, int duration) {
+			int width = codecCtx.width.get();
+			int height = codecCtx.height.get();
+			openCodec(width, height);
+            if (frameHolder == null) {
+            	frameHolder = new VideoFrameHolder(width, height, AVPixelFormat.AV_PIX_FMT_BGR24, codecCtx.pix_fmt.get(), stream.time_base, true);
+            }
+            submitPixels(frameHolder.setPlanes(VideoFrameHolder.avformatOf(format), planes, strides), pts, duration);
+		}
+
+		private void openCodec(int width, int height) {
             if (!this.codecOpened) {
             	codecCtx.width.set(width);
                 codecCtx.height.set(height);
 
-                checkcode(libavcodec.avcodec_open2(codecCtx, codecCtx.codec.get(), new Pointer[] {codecOpts}));
+                // in chunked mode this context only provides the stream parameters and extradata, the chunk encoders lease the threads
+                openCodec(chunkFrames == 0);
                 checkcode(libavcodec.avcodec_parameters_from_context(stream.codecpar.get(), codecCtx));
+                if (chunkFrames > 0) {
+                	this.chunks = new ChunkedEncoder(new ChunkContexts(), packet -> {
+                		fixEncodedPacketPtsDtsDuration(packet);
+                		output.accept(packet);
+                	}, streamIndex, chunkFrames, chunkParallelism);
+                }
 
-                codecOpened = true;
                 if (filterString != null)
                 	this.filters = new Filters(codecCtx, filterString);
             } else {
@@ -395,20 +585,57 @@ public class VelvetVideoLib implements IVelvetVideoLib {
             		throw new VelvetVideoException("Image dimensions do not match, expected " + codecCtx.width.get() + "x" + codecCtx.height.get());
             	}
             }
+		}
 
-            if (frameHolder == null) {
-            	frameHolder = new VideoFrameHolder(width, height, AVPixelFormat.avformatOf(image.getType()), codecCtx.pix_fmt.get(), stream.time_base, true);
-            }
+		/**
+		 * Assigns the frame's timestamp on the calling thread, so that frames dropped from the async queue leave a gap instead of shifting the timeline.
+		 */
+		private long reservePts(int duration) {
+			long pts = nextPts;
+			nextPts += (long) duration * defaultFrameDuration;
+			return pts;
+		}
+
+		/**
+		 * Opens chunk encoders through the same initialization as the stream's codec context, with the dimensions it was opened with.
+		 */
+		private class ChunkContexts implements ChunkedEncoder.ContextFactory {
+
+			@Override
+			public AVCodecContext open() {
+				AVCodecContext ctx = libavcodec.avcodec_alloc_context3(codec);
+				initContext(ctx, builder);
+				initVideoContext(ctx, builder);
+				ctx.width.set(codecCtx.width.get());
+				ctx.height.set(codecCtx.height.get());
+				CpuBudgetImpl.Lease leased = cpuBudget.lease(threads > 0 ? threads : 1);
+				chunkLeases.put(ctx, leased);
+				Pointer[] opts = { libavutil.createDictionary(builder.params) };
+				int res = openContext(ctx, leased.threads() > 0 ? leased.threads() : Math.max(threads, 1), opts);
+				libavutil.av_dict_free(opts);
+				if (res < 0) {
+					close(ctx);
+				}
+				checkcode(res);
+				return ctx;
+			}
+
+			@Override
+			public void close(AVCodecContext ctx) {
+				libavcodec.avcodec_close(ctx);
+				libavcodec.avcodec_free_context(new Pointer[] { Struct.getMemory(ctx) });
+				cpuBudget.release(chunkLeases.remove(ctx));
+			}
+		}
 
-            AVFrame frame = frameHolder.setPixels(image);
+		private void submitPixels(@NotNull AVFrame frame, long pts, int duration) {
             frame.extended_data.set(frame.data[0].getMemory());
-            frame.pts.set(nextPts);
-            nextPts += (long) duration * defaultFrameDuration;
+            frame.pts.set(pts);
             submitFrame(frame, duration);
         }
 
 		@Override
-		protected void fixEncodedPacketPtsDtsDuration() {
+		protected void fixEncodedPacketPtsDtsDuration(@NotNull AVPacket packet) {
 			Integer dur = frameDurationCache.remove(packet.pts.get());
 			if ((packet.duration.get() == 0 || packet.duration.get() == AVNOPTS_VALUE)) {
 				if (dur == null)
@@ -457,13 +684,12 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 			codecCtx.channel_layout.set(libavutil.av_get_default_channel_layout(codecAudioFormat.getChannels()));
 			codecCtx.bit_rate.set(builder.bitrate == null ? 128 * 1024 : builder.bitrate); //TODO default audio bit rate ?
 
-			checkcode(libavcodec.avcodec_open2(codecCtx, codecCtx.codec.get(), new Pointer[]{codecOpts}));
+			openCodec();
 			frameHolder = new AudioFrameHolder(codecCtx.time_base, true, codecCtx, builder.inputFormat);
-			this.codecOpened = true;
 		}
 
 		@Override
-		protected void fixEncodedPacketPtsDtsDuration() {
+		protected void fixEncodedPacketPtsDtsDuration(@NotNull AVPacket packet) {
 			//long dur = packet.duration.get();
 			//if (dur == codecCtx.frame_size.get() && (codecCtx.time_base.den.get() != stream.time_base.den.get() || codecCtx.time_base.num.get() != stream.time_base.num.get())) {
 			//	logEncoder.atWarn().log("duration not converted");
@@ -483,12 +709,49 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 		}
 
 		@Override
-		public void encode(byte[] samples, int offset) {
-			int duration = frameHolder.put(samples, offset);
-			AVFrame frame = frameHolder.frame();
-			frame.pts.set(nextPts);
-            nextPts += duration;
-			submitFrame(frame, duration);
+		public void encode(byte @NotNull [] samples, int offset) {
+			encode(ByteBuffer.wrap(samples, offset, samples.length - offset));
+		}
+
+		@Override
+		public void encode(@NotNull ByteBuffer samples) {
+			if (async == null) {
+				encodeSamples(samples);
+			} else {
+				ByteBuffer copy = ByteBuffer.allocate(samples.remaining()).put(samples).flip();
+				async.submit(() -> encodeSamples(copy));
+			}
+		}
+
+		@Override
+		public void encode(@NotNull FloatBuffer samples) {
+			if (async == null) {
+				encodeSamples(samples);
+			} else {
+				FloatBuffer copy = FloatBuffer.allocate(samples.remaining()).put(samples).flip();
+				async.submit(() -> encodeSamples(copy));
+			}
+		}
+
+		private void encodeSamples(@NotNull ByteBuffer samples) {
+			while (samples.hasRemaining()) {
+				submitSamples(frameHolder.fill(samples));
+			}
+		}
+
+		private void encodeSamples(@NotNull FloatBuffer samples) {
+			while (samples.hasRemaining()) {
+				submitSamples(frameHolder.fill(samples));
+			}
+		}
+
+		private void submitSamples(int duration) {
+			if (duration > 0) {
+				AVFrame frame = frameHolder.frame();
+				frame.pts.set(nextPts);
+				nextPts += duration;
+				submitFrame(frame, duration);
+			}
 		}
 
 		@Override
@@ -498,7 +761,9 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 
 		@Override
 		public void close() {
+			drain();
 			if (frameHolder != null) {
+				submitSamples(frameHolder.flush());
 				frameHolder.close();
 			}
 			super.close();
@@ -578,12 +843,7 @@ public class VelvetVideoLib implements IVelvetVideoLib {
         @Contract("_ -> new")
 		@Override
         public @NotNull IMuxer build(File outputFile) {
-            try {
-                FileSeekableOutput output = new FileSeekableOutput(new FileOutputStream(outputFile));
-                return new MuxerImpl(output, this);
-            } catch (FileNotFoundException e) {
-                throw new VelvetVideoException(e);
-            }
+            return new MuxerImpl(null, fileUrl(outputFile), this);
         }
     }
 
@@ -595,19 +855,39 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 
         private final ISeekableOutput output;
         private final AVFormatContext formatCtx;
-        private final IOCallback callback;
+        private final OutputAvioCallback callback;
 
         private MuxerImpl(ISeekableOutput output, @NotNull MuxerBuilderImpl builder) {
+            this(output, null, builder);
+        }
+
+        /**
+         * @param output custom output, null to let libavformat write to url itself
+         * @param url native output url, used when there is no custom output
+         */
+        private MuxerImpl(ISeekableOutput output, String url, @NotNull MuxerBuilderImpl builder) {
 
             this.libavformat = JNRHelper.load(LibAVFormat.class, Libraries.avformat, Libraries.avformat_version);
             this.output = output;
             this.formatCtx = createMuxerFormatContext(builder.format, builder.metadata);
-            this.callback = new IOCallback();
-            initCustomAvio(false, formatCtx, callback);
+            if (output != null) {
+                this.callback = new OutputAvioCallback(output);
+                initCustomAvio(false, formatCtx, callback);
+            } else {
+                this.callback = null;
+                if ((formatCtx.oformat.get().flags.get() & LibAVFormat.AVFMT_NOFILE) == 0) {
+                    PointerByReference pbref = new PointerByReference();
+                    checkcode(libavformat.avio_open(pbref, url, LibAVFormat.AVIO_FLAG_WRITE));
+                    formatCtx.pb.set(JNRHelper.struct(AVIOContext.class, pbref));
+                }
+            }
 
+            // async encoder streams write from their own workers
             Consumer<AVPacket> packetStream = packet -> {
 				logger.debug("writing packet PTS/DTS = " + packet.pts.get() + "/" + packet.dts.get() + ", duration=" + packet.duration.get() + ", " + packet.size.get() + " bytes", new VelvetVideoLogAreaBundle.Muxer());
-            	checkcode(libavformat.av_write_frame(formatCtx, packet));
+				synchronized (formatCtx) {
+					checkcode(libavformat.av_write_frame(formatCtx, packet));
+				}
             };
 
             builder.builders.forEach(brec ->  {
@@ -648,30 +928,11 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 					.orElseThrow(() -> new VelvetVideoException("No remuxer stream found with index " + index));
 		}
 
-		private class IOCallback implements ICustomAvioCallback {
-
-			@Contract("_, _, _ -> param3")
-			@Override
-			public int read_packet(Pointer opaque, @NotNull Pointer buf, int buf_size) {
-				// TODO [low] perf: prealloc buffer
-				byte[] bytes = new byte[buf_size];
-				buf.get(0, bytes, 0, buf_size);
-				output.write(bytes);
-				return buf_size;
-			}
-
-            @Override
-            public int seek(Pointer opaque, int offset, int whence) {
-                // TODO [low] support other whence values
-                if (whence != 0)
-                    throw new IllegalArgumentException();
-                output.seek(offset);
-                return offset;
-            }
-        }
-
         @Override
         public void close() {
+            // let async encoders finish queued frames before any stream is flushed
+            videoStreams.forEach(AbstractEncoderStreamImpl::drain);
+            audioStreams.forEach(AbstractEncoderStreamImpl::drain);
             // flush encoders
         	// TODO: order ??
             for (VideoEncoderStreamImpl encoder : videoStreams) {
@@ -692,42 +953,159 @@ public class VelvetVideoLib implements IVelvetVideoLib {
             checkcode(libavformat.av_write_trailer(formatCtx));
             // dispose resources
             AVIOContext avio = formatCtx.pb.get();
-            libavutil.av_free(avio.buffer.get());
-            libavformat.avio_context_free(new Pointer[] {Struct.getMemory(avio)});
+            if (output != null) {
+                libavutil.av_free(avio.buffer.get());
+                libavformat.avio_context_free(new Pointer[] {Struct.getMemory(avio)});
+            } else if (avio != null) {
+                checkcode(libavformat.avio_closep(new PointerByReference(Struct.getMemory(avio))));
+            }
             libavutil.av_dict_free(new Pointer[] {formatCtx.metadata.get()});
             formatCtx.metadata.set((Pointer)null);
             libavformat.avformat_free_context(formatCtx);
-            output.close();
+            if (output != null) {
+                output.close();
+            }
         }
 
     }
 
     @Override
-    public IDemuxer demuxer(ISeekableInput input) {
-        return new DemuxerImpl(input);
+    public IDemuxerBuilder demuxer() {
+        return new DemuxerBuilderImpl();
+    }
+
+    private class DemuxerBuilderImpl implements IDemuxerBuilder {
+
+    	private int decoderThreads;
+    	private ThreadType threadType = ThreadType.FRAME_AND_SLICE;
+    	private Set<Integer> streams;
+    	private int packetQueueCapacity = 1024;
+    	private OverflowPolicy packetQueuePolicy = OverflowPolicy.DROP_OLDEST;
+    	private int pipelineDepth;
+    	private AudioFormat audioFormat;
+    	private boolean memoryMapped;
+
+		@Override
+		public IDemuxerBuilder pipelined(int depth) {
+			this.pipelineDepth = depth;
+			return this;
+		}
+
+		@Override
+		public IDemuxerBuilder audioFormat(@NotNull AudioFormat format) {
+			try {
+				AVSampleFormat.from(format);
+			} catch (NoSuchElementException e) {
+				throw new VelvetVideoException("Unsupported audio sample format: " + format);
+			}
+			this.audioFormat = format;
+			return this;
+		}
+
+		@Override
+		public IDemuxerBuilder packetQueue(int capacity, OverflowPolicy policy) {
+			if (policy == OverflowPolicy.BLOCK) {
+				throw new VelvetVideoException("Packet queues are filled by the reading thread itself and cannot block");
+			}
+			this.packetQueueCapacity = capacity;
+			this.packetQueuePolicy = policy;
+			return this;
+		}
+
+		@Override
+		public IDemuxerBuilder streams(int... indices) {
+			this.streams = indices.length == 0 ? null : Arrays.stream(indices).boxed().collect(Collectors.toSet());
+			return this;
+		}
+
+		private boolean selected(int index) {
+			return streams == null || streams.contains(index);
+		}
+
+		@Override
+		public IDemuxerBuilder memoryMapped(boolean memoryMapped) {
+			this.memoryMapped = memoryMapped;
+			return this;
+		}
+
+		@Override
+		public IDemuxerBuilder decoderThreads(int threads, ThreadType type) {
+			this.decoderThreads = threads;
+			this.threadType = type;
+			return this;
+		}
+
+        @Contract("_ -> new")
+		@Override
+		public @NotNull IDemuxer build(ISeekableInput input) {
+			return new DemuxerImpl(input, this);
+		}
+
+        @Contract("_ -> new")
+		@Override
+		public @NotNull IDemuxer build(File file) {
+			if (memoryMapped) {
+				return new DemuxerImpl(new MappedFileSeekableInput(file), this);
+			}
+			if (!file.isFile()) {
+				throw new VelvetVideoException(new FileNotFoundException(file.getPath()));
+			}
+			return new DemuxerImpl(null, fileUrl(file), this);
+		}
+    }
+
+    private static int threadTypeFlags(@NotNull ThreadType type) {
+    	return switch (type) {
+    		case FRAME -> LibAVCodec.FF_THREAD_FRAME;
+    		case SLICE -> LibAVCodec.FF_THREAD_SLICE;
+    		case FRAME_AND_SLICE -> LibAVCodec.FF_THREAD_FRAME | LibAVCodec.FF_THREAD_SLICE;
+    	};
     }
 
     public class DemuxerImpl implements IDemuxer {
 
         private final AVFormatContext formatCtx;
         private final ISeekableInput input;
-        private final IOCallback callback;
+        private final InputAvioCallback callback;
 
         private final AVPacket packet;
         private final Map<Integer, DecoderVideoStreamImpl> indexToVideoStream = new LinkedHashMap<>();
         private final Map<Integer, DecoderAudioStreamImpl> indexToAudioStream = new LinkedHashMap<>();
         private final List<AbstractDecoderStream> allStreams = new ArrayList<>();
 		private int flushStreamIndex = 0;
+		private final int packetQueueCapacity;
+		private final OverflowPolicy packetQueuePolicy;
+		private long packetSequence;
+		private final int pipelineDepth;
+		private Pipeline pipeline;
+		private final AudioFormat audioFormat;
+		private boolean closed;
+
+        public DemuxerImpl(ISeekableInput input, @NotNull DemuxerBuilderImpl builder) {
+            this(input, null, builder);
+        }
 
-        public DemuxerImpl(ISeekableInput input) {
+        /**
+         * @param input custom input, null to let libavformat read url itself
+         * @param url native input url, used when there is no custom input
+         */
+        private DemuxerImpl(ISeekableInput input, String url, @NotNull DemuxerBuilderImpl builder) {
             this.input = input;
+            this.packetQueueCapacity = builder.packetQueueCapacity;
+            this.packetQueuePolicy = builder.packetQueuePolicy;
+            this.pipelineDepth = builder.pipelineDepth;
+            this.audioFormat = builder.audioFormat;
             this.packet = libavcodec.av_packet_alloc();
             this.formatCtx = libavformat.avformat_alloc_context();
-            this.callback = new IOCallback();
-            initCustomAvio(true, formatCtx, callback);
+            if (input != null) {
+                this.callback = new InputAvioCallback(input);
+                initCustomAvio(true, formatCtx, callback);
+            } else {
+                this.callback = null;
+            }
 
             PointerByReference ptrctx = new PointerByReference(Struct.getMemory(formatCtx));
-            int res = libavformat.avformat_open_input(ptrctx, null, null, null);
+            int res = libavformat.avformat_open_input(ptrctx, input == null ? url : null, null, null);
             if (res == LibAVUtil.AVERROR_INVALIDDATA) {
                 throw new VelvetVideoException("Unknown container format");
             }
@@ -736,17 +1114,35 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 
             long nb = formatCtx.nb_streams.get();
             Pointer pointer = formatCtx.streams.get();
+            List<AVStream> avstreams = new ArrayList<>();
             for (int i=0; i<nb; i++) {
                 Pointer mem = pointer.getPointer((long) i * pointer.getRuntime().addressSize());
-                AVStream avstream = JNRHelper.struct(AVStream.class, mem);
+                avstreams.add(JNRHelper.struct(AVStream.class, mem));
+            }
+            int videoThreads = 0;
+            if (builder.decoderThreads > 0) {
+            	long videoCount = avstreams.stream().filter(s -> builder.selected(s.index.get()) && s.codec.get().codec_type.get() == LibAVCodec.AVMEDIA_TYPE_VIDEO).count();
+            	videoThreads = (int) Math.max(1, builder.decoderThreads / Math.max(1, videoCount));
+            }
+            for (int i=0; i<nb; i++) {
+                AVStream avstream = avstreams.get(i);
                 int mediaType = avstream.codec.get().codec_type.get();
-				if (mediaType == LibAVCodec.AVMEDIA_TYPE_VIDEO) {
+                if (!builder.selected(i)) {
+                	avstream.discard.set(LibAVCodec.AVDISCARD_ALL);
+                } else if (mediaType == LibAVCodec.AVMEDIA_TYPE_VIDEO) {
                     avstream.codec.get().strict_std_compliance.set(-2);
+                    if (videoThreads > 0) {
+                    	avstream.codec.get().thread_count.set(videoThreads);
+                    	avstream.codec.get().thread_type.set(threadTypeFlags(builder.threadType));
+                    }
                     DecoderVideoStreamImpl decoder = new DecoderVideoStreamImpl(avstream, defaultName(avstream, i));
                     indexToVideoStream.put(i, decoder);
                     allStreams.add(decoder);
                 } else if (mediaType == LibAVCodec.AVMEDIA_TYPE_AUDIO) { // TODO dry
                     avstream.codec.get().strict_std_compliance.set(-2);
+                    if (videoThreads > 0) {
+                    	avstream.codec.get().thread_count.set(1);
+                    }
                     DecoderAudioStreamImpl decoder = new DecoderAudioStreamImpl(avstream, defaultName(avstream, i));
                     indexToAudioStream.put(i, decoder);
                     allStreams.add(decoder);
@@ -754,51 +1150,76 @@ public class VelvetVideoLib implements IVelvetVideoLib {
             }
         }
 
-        private class IOCallback implements ICustomAvioCallback {
-
-            @Override
-            public int read_packet(Pointer opaque, Pointer buf, int buf_size) {
-                byte[] bytes = new byte[buf_size];
-                int bts;
-                bts = input.read(bytes);
-                if (bts > 0) {
-                    buf.put(0, bytes, 0, bts);
-                }
-                return bts;
-            }
-
-            @Override
-            public int seek(Pointer opaque, int offset, int whence) {
-
-                final int SEEK_SET = 0;   /* set file offset to offset */
-                // final int SEEK_CUR = 1;   /* set file offset to current plus offset */
-                final int SEEK_END = 2;   /* set file offset to EOF plus offset */
-                final int AVSEEK_SIZE = 0x10000;   /* set file offset to EOF plus offset */
-
-                if (whence == SEEK_SET)
-                    input.seek(offset);
-                else if (whence == SEEK_END)
-                    input.seek(input.size() - offset);
-                else if (whence == AVSEEK_SIZE)
-                    return (int) input.size();
-                else throw new VelvetVideoException("Unsupported seek operation " + whence);
-                return offset;
-            }
-
-        }
-
         @Override
 		public IDecodedPacket<?> nextPacket() {
-        	return Feeder.next(this::nextAVPacket, this::decodePacket);
+        	if (pipelineDepth > 0) {
+        		return pipeline().next(null);
+        	}
+        	return Feeder.next(this::nextQueuedOrReadPacket, this::decodePacket);
         }
 
         @Override
         public IRawPacket nextRawPacket() {
-        	AVPacket packet = nextAVPacket();
+        	checkNotPipelined();
+        	AVPacket packet = nextQueuedOrReadPacket();
         	if (packet == null) {
         		return null;
         	}
-        	return new RawPacket(packet);
+        	RawPacket rawPacket = new RawPacket(packet);
+        	releasePacket(packet);
+        	return rawPacket;
+        }
+
+        /**
+         * Packets queued by per-stream reading come first, in container order, before anything new is read.
+         */
+        private @Nullable AVPacket nextQueuedOrReadPacket() {
+        	AbstractDecoderStream earliest = null;
+        	for (AbstractDecoderStream stream : allStreams) {
+        		if (stream.queue.headSequence() != Long.MAX_VALUE && (earliest == null || stream.queue.headSequence() < earliest.queue.headSequence())) {
+        			earliest = stream;
+        		}
+        	}
+        	return earliest != null ? earliest.queue.poll() : nextAVPacket();
+        }
+
+        /**
+         * Queued packets are references of their own and are freed after use; the demuxer's read packet is only unreferenced, as it is reused.
+         * Packets are released by whoever read them, never by the decoder, so pipeline workers do not touch the reader's packet.
+         */
+        private void releasePacket(@NotNull AVPacket p) {
+        	if (p != packet) {
+        		PacketQueue.free(p);
+        	} else {
+        		libavcodec.av_packet_unref(p);
+        	}
+        }
+
+        /**
+         * The pipeline starts on the first read, so that streams can still be configured after the demuxer is built.
+         */
+        private Pipeline pipeline() {
+        	if (pipeline == null) {
+        		pipeline = new Pipeline(pipelineDepth);
+        	}
+        	return pipeline;
+        }
+
+        private void stopPipeline() {
+        	if (pipeline != null) {
+        		pipeline.close();
+        		pipeline = null;
+        	}
+        }
+
+        private void checkNotPipelined() {
+        	if (pipelineDepth > 0) {
+        		throw new VelvetVideoException("Raw packets are not available in pipelined mode");
+        	}
+        }
+
+        private void clearQueues() {
+        	allStreams.forEach(stream -> stream.queue.clear());
         }
 
         private @Nullable AVPacket nextAVPacket() {
@@ -811,6 +1232,7 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 				return null;
 			}
 			checkcode(res);
+			packetSequence++;
 			logger.debug("stream " + packet.stream_index.get() +
 					"read packet PTS/DTs=" + packet.pts.get() + "/" + packet.dts.get() + " " +
 					"duration=" + packet.duration.get() + " " +
@@ -820,6 +1242,12 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 			return packet;
         }
 
+        @Contract("_ -> new")
+        @Override
+        public Flow.@NotNull Publisher<IDecodedPacket<?>> publisher(Executor executor) {
+        	return new FramePublisher<>(this::nextPacket, this::close, executor);
+        }
+
         @Override
         public Stream<IDecodedPacket<?>> packetStream() {
         	// return Stream.generate(this::nextPacket).takeWhile(el -> el != null);
@@ -837,7 +1265,11 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 		 */
 		private IDecodedPacket<?> decodePacket(AVPacket p) {
 			if (p != null) {
-				return decodeRawPacket(p);
+				try {
+					return decodeRawPacket(p);
+				} finally {
+					releasePacket(p);
+				}
 			} else {
 				return flushNextStream();
 			}
@@ -855,10 +1287,19 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 			return new UnknownPacket();
 		}
 
+		private @Nullable AbstractDecoderStream streamByIndex(int index) {
+			AbstractDecoderStream stream = indexToVideoStream.get(index);
+			return stream != null ? stream : indexToAudioStream.get(index);
+		}
+
 		private @Nullable IDecodedPacket<?> flushNextStream() {
 			for (; flushStreamIndex < allStreams.size(); flushStreamIndex++) {
 				logger.debug("flushing demuxer stream=" + flushStreamIndex, new VelvetVideoLogAreaBundle.Demuxer());
 				AbstractDecoderStream stream = allStreams.get(flushStreamIndex);
+				if (!stream.opened) {
+					// never decoded, nothing to flush
+					continue;
+				}
 				IDecodedPacket<?> packet = stream.decodePacket(null);
 				if (packet != null) {
 					return packet;
@@ -869,6 +1310,15 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 
 		private class DecoderVideoStreamImpl extends AbstractDecoderStream implements IVideoDecoderStream {
 
+			private boolean planesOnly;
+			private int imagePoolSize;
+			private boolean imagePoolBlock;
+			private PixelFormat outputFormat = PixelFormat.BGR24;
+			private int[] crop;
+			private int scaleWidth;
+			private int scaleHeight;
+			private ScaleAlgorithm scaleAlgorithm;
+
 			public DecoderVideoStreamImpl(AVStream avstream, String name) {
 				super(avstream, name);
 			}
@@ -891,13 +1341,8 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 
 			@Override
 			public @Nullable IVideoFrame nextFrame() {
-				IDecodedPacket<?> packet;
-				while((packet = nextPacket()) != null) {
-					if (packet.is(MediaType.Video) && packet.stream() == this) {
-						return packet.asVideo();
-					}
-				}
-				return null;
+				IDecodedPacket<?> packet = nextOwnFrame();
+				return packet == null ? null : packet.asVideo();
 			}
 
 			@Contract(value = " -> new", pure = true)
@@ -906,6 +1351,12 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 				return iteratorFromSupplier(this::nextFrame);
 			}
 
+			@Contract("_ -> new")
+			@Override
+			public Flow.@NotNull Publisher<IVideoFrame> publisher(Executor executor) {
+				return new FramePublisher<>(this::nextFrame, this::stopReading, executor);
+			}
+
 			@Override
 			public IVideoDecoderStream seek(long frameNumber) {
 				seekToFrame(frameNumber);
@@ -918,10 +1369,85 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 				return this;
 			}
 
+			@Override
+			public IVideoDecoderStream planesOnly(boolean planesOnly) {
+				this.planesOnly = planesOnly;
+				if (frameHolder != null) {
+					((VideoFrameHolder) frameHolder).planesOnly(planesOnly);
+				}
+				return this;
+			}
+
+			@Override
+			public IVideoDecoderStream imagePool(int size, boolean block) {
+				this.imagePoolSize = size;
+				this.imagePoolBlock = block;
+				if (frameHolder != null) {
+					((VideoFrameHolder) frameHolder).imagePool(size, block);
+				}
+				return this;
+			}
+
+			@Override
+			public IVideoDecoderStream outputFormat(PixelFormat format) {
+				if (format.imageType() == BufferedImage.TYPE_CUSTOM && format != PixelFormat.NATIVE) {
+					throw new VelvetVideoException("Pixel format " + format + " has no image type, use NATIVE and read the frame planes instead");
+				}
+				this.outputFormat = format;
+				if (frameHolder != null) {
+					((VideoFrameHolder) frameHolder).outputFormat(format);
+				}
+				return this;
+			}
+
+			@Override
+			public IVideoDecoderStream scale(int width, int height, ScaleAlgorithm algorithm) {
+				this.scaleWidth = width;
+				this.scaleHeight = height;
+				this.scaleAlgorithm = algorithm;
+				if (frameHolder != null) {
+					((VideoFrameHolder) frameHolder).scale(width, height, algorithm);
+				}
+				return this;
+			}
+
+			@Override
+			public IVideoDecoderStream decodeLevel(DecodeLevel level) {
+				int discard = switch (level) {
+					case ALL -> LibAVCodec.AVDISCARD_DEFAULT;
+					case NONREF -> LibAVCodec.AVDISCARD_NONREF;
+					case BIDIR -> LibAVCodec.AVDISCARD_BIDIR;
+					case NONINTRA -> LibAVCodec.AVDISCARD_NONINTRA;
+					case NONKEY -> LibAVCodec.AVDISCARD_NONKEY;
+				};
+				discard(discard);
+				return this;
+			}
+
+			@Override
+			public IVideoDecoderStream crop(int x, int y, int width, int height) {
+				this.crop = new int[] {x, y, width, height};
+				if (frameHolder != null) {
+					((VideoFrameHolder) frameHolder).crop(x, y, width, height);
+				}
+				return this;
+			}
+
             @Contract(" -> new")
 			@Override
             protected @NotNull IFrameHolder createFrameHolder() {
-            	return new VideoFrameHolder(codecCtx.width.get(), codecCtx.height.get(), codecCtx.pix_fmt.get(), AVPixelFormat.AV_PIX_FMT_BGR24, avstream.time_base, false);
+            	VideoFrameHolder holder = new VideoFrameHolder(codecCtx.width.get(), codecCtx.height.get(), codecCtx.pix_fmt.get(), AVPixelFormat.AV_PIX_FMT_BGR24, avstream.time_base, false);
+            	holder.planesOnly(planesOnly);
+            	holder.exposePlanes(pipelineDepth == 0);
+            	holder.outputFormat(outputFormat);
+            	if (crop != null) {
+            		holder.crop(crop[0], crop[1], crop[2], crop[3]);
+            	}
+            	if (scaleAlgorithm != null) {
+            		holder.scale(scaleWidth, scaleHeight, scaleAlgorithm);
+            	}
+            	holder.imagePool(imagePoolSize, imagePoolBlock);
+            	return holder;
             }
 
 		}
@@ -929,26 +1455,31 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 		private class DecoderAudioStreamImpl extends AbstractDecoderStream implements IAudioDecoderStream {
 
 			private final AudioFormat targetFormat;
+			private int bufferPoolSize;
+			private boolean bufferPoolBlock;
+			private SampleLayout sampleLayout = SampleLayout.PCM;
+			private long trimTo = -1;
 
 			public DecoderAudioStreamImpl(AVStream avstream, String name) {
 				super(avstream, name);
 		    	AudioFormat suggestedFormat = codecCtx.sample_fmt.get().destFormat().toAudioFormat(codecCtx.sample_rate.get(), codecCtx.channels.get());
-		    	targetFormat = new BestMatchingAudioFormatConvertor().apply(suggestedFormat);
+		    	if (audioFormat != null) {
+		    		int rate = audioFormat.getSampleRate() == AudioSystem.NOT_SPECIFIED ? codecCtx.sample_rate.get() : (int) audioFormat.getSampleRate();
+		    		int channels = audioFormat.getChannels() == AudioSystem.NOT_SPECIFIED ? codecCtx.channels.get() : audioFormat.getChannels();
+		    		targetFormat = AVSampleFormat.from(audioFormat).toAudioFormat(rate, channels);
+		    	} else {
+		    		targetFormat = new BestMatchingAudioFormatConvertor().apply(suggestedFormat);
+		    	}
 				logger.info("stream " + index() + ": audio format [" + targetFormat + "]", new VelvetVideoLogAreaBundle.Decoder());
-		    	if (!targetFormat.equals(suggestedFormat)) {
+		    	if (audioFormat == null && !targetFormat.equals(suggestedFormat)) {
 					logger.warn("Audio format converted [" + suggestedFormat + "] -> [" + targetFormat + "]", new VelvetVideoLogAreaBundle.Decoder());
 		    	}
 			}
 
 			@Override
 			public @Nullable IAudioFrame nextFrame() {
-				IDecodedPacket<?> packet;
-				while((packet = nextPacket()) != null) {
-					if (packet.is(MediaType.Audio) && packet.stream() == this) {
-						return packet.asAudio();
-					}
-				}
-				return null;
+				IDecodedPacket<?> packet = nextOwnFrame();
+				return packet == null ? null : packet.asAudio();
 			}
 
 			@Contract(value = " -> new", pure = true)
@@ -957,6 +1488,12 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 				return iteratorFromSupplier(this::nextFrame);
 			}
 
+			@Contract("_ -> new")
+			@Override
+			public Flow.@NotNull Publisher<IAudioFrame> publisher(Executor executor) {
+				return new FramePublisher<>(this::nextFrame, this::stopReading, executor);
+			}
+
 			@Override
 			public @NotNull IAudioStreamProperties properties() {
 				// TODO DRY
@@ -968,22 +1505,66 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 				return new AudioStreamPropertiesImpl(codec.name.get(), targetFormat, duration, frames);
 			}
 
+			/**
+			 * For audio streams the frame number is the index of a sample, at the stream's decoded sample rate.
+			 */
 			@Override
-			public IAudioDecoderStream seek(long frameNumber) {
-				// TODO
-				throw new VelvetVideoException("Not yet implemented");
+			public IAudioDecoderStream seek(long sample) {
+				seekToSample(sample);
+				return this;
 			}
 
 			@Override
 			public IAudioDecoderStream seekNano(long ns) {
-				// TODO
-				throw new VelvetVideoException("Not yet implemented");
+				seekToSample((long) Math.floor(ns * (double) targetFormat.getSampleRate() / 1000000000L));
+				return this;
+			}
+
+			/**
+			 * Seeks back to the packet at or before the sample, then decoding drops the samples up to it.
+			 */
+			private void seekToSample(long sample) {
+				long rate = (long) targetFormat.getSampleRate();
+				long pts = libavutil.av_rescale(sample, avstream.time_base.den.get(), rate * avstream.time_base.num.get());
+				logger.debug("seeking to sample " + sample + ", target pts=" + pts, new VelvetVideoLogAreaBundle.Decoder());
+				seekToPts(pts, LibAVFormat.AVSEEK_FLAG_BACKWARD);
+				this.trimTo = sample;
+				if (frameHolder != null) {
+					((AudioFrameHolder) frameHolder).trimTo(sample);
+				}
+			}
+
+			@Override
+			public IAudioDecoderStream bufferPool(int size, boolean block) {
+				this.bufferPoolSize = size;
+				this.bufferPoolBlock = block;
+				if (frameHolder != null) {
+					((AudioFrameHolder) frameHolder).bufferPool(size, block);
+				}
+				return this;
+			}
+
+			@Override
+			public IAudioDecoderStream sampleLayout(@NotNull SampleLayout layout) {
+				this.sampleLayout = layout;
+				if (frameHolder != null) {
+					((AudioFrameHolder) frameHolder).sampleLayout(layout);
+				}
+				return this;
 			}
 
 			@Contract(" -> new")
 			@Override
 			protected @NotNull IFrameHolder createFrameHolder() {
-				return new AudioFrameHolder(avstream.time_base, false, codecCtx, targetFormat);
+				AudioFrameHolder holder = new AudioFrameHolder(avstream.time_base, false, codecCtx, targetFormat);
+				if (sampleLayout != SampleLayout.PCM) {
+					holder.sampleLayout(sampleLayout);
+				}
+				holder.bufferPool(bufferPoolSize, bufferPoolBlock);
+				if (trimTo >= 0) {
+					holder.trimTo(trimTo);
+				}
+				return holder;
 			}
 
 		}
@@ -997,6 +1578,10 @@ public class VelvetVideoLib implements IVelvetVideoLib {
             protected IFrameHolder frameHolder;
             private final int index;
             private long skipToPts = -1;
+            private boolean skipsFrames;
+            private boolean opened;
+            private boolean readAlone;
+            private final PacketQueue queue;
 			private Filters filters;
 
             public AbstractDecoderStream(@NotNull AVStream avstream, String name) {
@@ -1004,8 +1589,62 @@ public class VelvetVideoLib implements IVelvetVideoLib {
                 this.name = name;
                 this.index = avstream.index.get();
                 this.codecCtx = avstream.codec.get();
+                this.queue = new PacketQueue(name, packetQueueCapacity, packetQueuePolicy);
+            }
+
+            /**
+             * Next packet of this stream: queued packets first, then packets read from the container.
+             * Packets of other streams read on the way are queued for them if they are read on their own as well, otherwise they are dropped.
+             */
+            private @Nullable AVPacket nextOwnPacket() {
+            	readAlone = true;
+            	AVPacket p = queue.poll();
+            	if (p != null) {
+            		return p;
+            	}
+            	while ((p = nextAVPacket()) != null) {
+            		int streamIndex = p.stream_index.get();
+            		if (streamIndex == index) {
+            			return p;
+            		}
+            		AbstractDecoderStream owner = streamByIndex(streamIndex);
+            		if (owner != null && owner.readAlone) {
+            			owner.queue.offer(p, packetSequence);
+            		}
+            		libavcodec.av_packet_unref(p);
+            	}
+            	return null;
+            }
+
+            /**
+             * @return next decoded frame of this stream only, or null at the end of stream
+             */
+            IDecodedPacket<?> nextOwnFrame() {
+            	if (pipelineDepth > 0) {
+            		return pipeline().next(this);
+            	}
+            	return Feeder.next(this::nextOwnPacket, p -> {
+            		if (p == null) {
+            			return opened ? decodePacket(null) : null;
+            		}
+            		try {
+            			return decodePacket(p);
+            		} finally {
+            			releasePacket(p);
+            		}
+            	});
+            }
+
+            /**
+             * Decoders are opened on the first packet, so streams that are never decoded (or only remuxed) cost nothing.
+             */
+            private void open() {
+            	if (opened) {
+            		return;
+            	}
                 AVCodec codec = libavcodec.avcodec_find_decoder(codecCtx.codec_id.get());
                 checkcode(libavcodec.avcodec_open2(codecCtx, codec, null));
+                opened = true;
 				logger.info("stream " + avstream.index.get() +
 								": timebase: " +avstream.time_base.num.get() + "/" + avstream.time_base.den.get() +
 								", codec [" + codec.name.get() + "] timebase " +
@@ -1036,7 +1675,7 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 							if (pack == null)
 								continue;
 							return null;
-						} else if (pts > skipToPts) {
+						} else if (pts > skipToPts && !skipsFrames) {
 							logger.warn(" ...unexpected position: PTS=" + pts + " missed target PTS=" + skipToPts, new VelvetVideoLogAreaBundle.Decoder());
 							if (pack == null)
 								continue;
@@ -1047,11 +1686,18 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 	                IDecodedPacket<?> decodedPacket = frameHolder.decode(frame, this);
 	                if (filters !=null)
 	                	libavutil.av_frame_unref(frame);
+	                if (decodedPacket == null) {
+	                	// frame dropped by the holder, e.g. audio preceding the seek target
+	                	if (pack == null)
+	                		continue;
+	                	return null;
+	                }
 	                return decodedPacket;
             	}
             }
 
             AVFrame feedPacket(AVPacket pack) {
+            	 open();
             	 int res1 = libavcodec.avcodec_send_packet(codecCtx, pack);
             	 if (res1 != LibAVUtil.AVERROR_EOF) {
             		 checkcode(res1);
@@ -1064,12 +1710,21 @@ public class VelvetVideoLib implements IVelvetVideoLib {
             		 return null;
             	 checkcode(res);
 				 logger.debug("decoded frame pts=" + frameHolder.pts() + " dur=" + libavutil.av_frame_get_pkt_duration(frameHolder.frame()), new VelvetVideoLogAreaBundle.Decoder());
-            	 libavcodec.av_packet_unref(packet);
             	 return frameHolder.frame();
             }
 
             abstract protected IFrameHolder createFrameHolder();
 
+            /**
+             * Sets the AVDISCARD level of frames, loop filter and IDCT. Takes effect from the next packet, no reopening is needed.
+             */
+            void discard(int discard) {
+            	codecCtx.skip_frame.set(discard);
+            	codecCtx.skip_loop_filter.set(discard);
+            	codecCtx.skip_idct.set(discard);
+            	this.skipsFrames = discard != LibAVCodec.AVDISCARD_DEFAULT;
+            }
+
 			public String name() {
                 return name;
             }
@@ -1101,24 +1756,47 @@ public class VelvetVideoLib implements IVelvetVideoLib {
             }
 
 			private void seekToPts(long pts) {
-				checkcode(libavformat.av_seek_frame(formatCtx, this.index, pts, LibAVFormat.AVSEEK_FLAG_FRAME | LibAVFormat.AVSEEK_FLAG_BACKWARD));
-                libavcodec.avcodec_flush_buffers(codecCtx);
+				seekToPts(pts, LibAVFormat.AVSEEK_FLAG_FRAME | LibAVFormat.AVSEEK_FLAG_BACKWARD);
                 this.skipToPts  = pts;
+			}
+
+			/**
+			 * Seeks the container and resets decoding state, leaving it to the caller to skip to the exact target.
+			 */
+			protected void seekToPts(long pts, int flags) {
+				stopPipeline();
+				checkcode(libavformat.av_seek_frame(formatCtx, this.index, pts, flags));
+                if (opened) {
+                	libavcodec.avcodec_flush_buffers(codecCtx);
+                }
+                clearQueues();
+                this.skipToPts = -1;
                 flushStreamIndex = 0;
                 if (filters != null)
                 	filters.reset();
 			}
 
 			public IRawPacket nextRawPacket() {
-				AVPacket p;
-				while ((p = DemuxerImpl.this.nextAVPacket()) != null) {
-					IRawPacket rp = (p.stream_index.get() == index) ? new RawPacket(p) : null;
+				checkNotPipelined();
+				AVPacket p = nextOwnPacket();
+				if (p == null) {
+					return null;
+				}
+				IRawPacket rp = new RawPacket(p);
+				if (p == packet) {
 					libavcodec.av_packet_unref(p);
-					if (rp != null) {
-						return rp;
-					}
+				} else {
+					PacketQueue.free(p);
 				}
-				return null;
+				return rp;
+			}
+
+			/**
+			 * Called when the stream's publisher is done: packets are no longer queued for the stream, the demuxer stays open for the others.
+			 */
+			void stopReading() {
+				readAlone = false;
+				queue.clear();
 			}
 
 			public void setFilter(String filterString) {
@@ -1128,18 +1806,237 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 
 			@Override
 			public void close() {
+				queue.clear();
 				if (filters != null) {
 					filters.close();
 				}
 				if (frameHolder != null) {
 					frameHolder.close();
 				}
-				libavcodec.avcodec_close(codecCtx);
+				if (opened) {
+					libavcodec.avcodec_close(codecCtx);
+				}
 //				libavcodec.avcodec_free_context(new Pointer[] { Struct.getMemory(codecCtx) });
 			}
 
         }
 
+        /**
+         * Pipelined decoding: a reader thread demuxes packets into per-stream packet queues, and a worker thread per stream decodes and converts
+         * them into a bounded frame queue. The consumer only takes finished frames, so I/O, decoding and frame processing overlap.
+         * Every point where a pipeline thread may block signals the lock first, so the consumer can resolve stalls.
+         */
+        private class Pipeline implements AutoCloseable {
+
+        	private static final long OFFER_TIMEOUT_MS = 50;
+
+        	private final Object lock = new Object();
+        	private final Map<AbstractDecoderStream, Worker> workers = new LinkedHashMap<>();
+        	private final Thread reader;
+        	private volatile boolean stopping;
+        	private volatile Throwable failure;
+        	private volatile Worker readerBlockedOn;
+
+        	private class Worker implements Runnable {
+        		private final AbstractDecoderStream stream;
+        		private final BlockingQueue<AVPacket> packets;
+        		private final BlockingDeque<IDecodedPacket<?>> frames;
+        		private final Thread thread;
+        		private volatile boolean finished;
+
+        		Worker(AbstractDecoderStream stream, int depth) {
+        			this.stream = stream;
+        			this.packets = new ArrayBlockingQueue<>(depth);
+        			this.frames = new LinkedBlockingDeque<>(depth);
+        			this.thread = new Thread(this, "velvet-video decoder " + stream.name());
+        			this.thread.setDaemon(true);
+        		}
+
+				@Override
+				public void run() {
+					try {
+						for (;;) {
+							AVPacket p = packets.take();
+							if (p == packet) { // end of container marker
+								IDecodedPacket<?> frame;
+								while (stream.opened && (frame = stream.decodePacket(null)) != null) {
+									deliver(frame);
+								}
+								return;
+							}
+							IDecodedPacket<?> frame;
+							try {
+								frame = stream.decodePacket(p);
+							} finally {
+								PacketQueue.free(p);
+							}
+							if (frame != null) {
+								deliver(frame);
+							}
+						}
+					} catch (InterruptedException e) {
+						// stopped
+					} catch (Throwable t) {
+						fail(t);
+					} finally {
+						finished = true;
+						signal();
+					}
+				}
+
+				private void deliver(IDecodedPacket<?> frame) throws InterruptedException {
+					if (!frames.offer(frame)) {
+						signal();
+						frames.put(frame);
+					}
+					signal();
+				}
+        	}
+
+        	Pipeline(int depth) {
+        		allStreams.forEach(stream -> workers.put(stream, new Worker(stream, depth)));
+        		this.reader = new Thread(this::read, "velvet-video demuxer");
+        		this.reader.setDaemon(true);
+        		workers.values().forEach(w -> w.thread.start());
+        		reader.start();
+        	}
+
+        	private void read() {
+        		try {
+        			AVPacket p;
+        			while (!stopping && (p = nextAVPacket()) != null) {
+        				Worker worker = workers.get(streamByIndex(p.stream_index.get()));
+        				if (worker != null && !handOver(worker, libavcodec.av_packet_clone(p))) {
+        					return;
+        				}
+        				libavcodec.av_packet_unref(p);
+        			}
+        			for (Worker worker : workers.values()) {
+        				if (!handOver(worker, packet)) {
+        					return;
+        				}
+        			}
+        		} catch (Throwable t) {
+        			fail(t);
+        		}
+        	}
+
+        	/**
+        	 * Reader never gets interrupted, as interrupting I/O may close the underlying input channel; it polls the stop flag instead.
+        	 * @return false if the pipeline is stopping
+        	 */
+        	private boolean handOver(Worker worker, AVPacket p) throws InterruptedException {
+        		if (worker.packets.offer(p)) {
+        			return true;
+        		}
+        		readerBlockedOn = worker;
+        		signal();
+        		try {
+        			while (!stopping) {
+        				if (worker.packets.offer(p, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+        					return true;
+        				}
+        			}
+        		} finally {
+        			readerBlockedOn = null;
+        		}
+        		if (p != packet) {
+        			PacketQueue.free(p);
+        		}
+        		return false;
+        	}
+
+        	private void fail(Throwable t) {
+        		failure = t;
+        		signal();
+        	}
+
+        	private void signal() {
+        		synchronized (lock) {
+        			lock.notifyAll();
+        		}
+        	}
+
+        	/**
+        	 * @param stream stream to take a frame of, or null to take the earliest frame of any stream
+        	 * @return next frame, or null when all the (requested) streams are finished
+        	 */
+        	IDecodedPacket<?> next(@Nullable AbstractDecoderStream stream) {
+        		synchronized (lock) {
+        			for (;;) {
+        				if (failure != null) {
+        					throw new VelvetVideoException("Pipelined decoding failed", failure);
+        				}
+        				Worker earliest = null;
+        				boolean waiting = false;
+        				boolean full = false;
+        				for (Worker worker : workers.values()) {
+        					full |= worker.frames.remainingCapacity() == 0;
+        					if (stream != null && worker.stream != stream) {
+        						continue;
+        					}
+        					IDecodedPacket<?> head = worker.frames.peekFirst();
+        					if (head == null) {
+        						waiting |= !worker.finished;
+        					} else if (earliest == null || head.nanostamp() < earliest.frames.peekFirst().nanostamp()) {
+        						earliest = worker;
+        					}
+        				}
+        				// with a full queue somewhere, waiting for the missing streams could stall the reader
+        				if (earliest != null && (!waiting || full)) {
+        					return earliest.frames.pollFirst();
+        				}
+        				if (!waiting) {
+        					return null;
+        				}
+        				if (stream != null) {
+        					resolveStall(stream);
+        				}
+        				try {
+        					lock.wait(OFFER_TIMEOUT_MS);
+        				} catch (InterruptedException e) {
+        					Thread.currentThread().interrupt();
+        					throw new VelvetVideoException(e);
+        				}
+        			}
+        		}
+        	}
+
+        	/**
+        	 * When a single stream is read, the reader may block on another stream nobody reads. Its frames are then dropped according to the packet queue policy.
+        	 */
+        	private void resolveStall(AbstractDecoderStream stream) {
+        		Worker blocked = readerBlockedOn;
+        		if (blocked == null || blocked.stream == stream || blocked.frames.remainingCapacity() != 0) {
+        			return;
+        		}
+        		switch (packetQueuePolicy) {
+        			case FAIL -> throw new VelvetVideoException("Pipelined decoding stalled: stream " + blocked.stream.name() + " is not read. Read it, deselect it or use a dropping overflow policy");
+        			case DROP_OLDEST -> blocked.frames.pollFirst().release();
+        			case DROP_NEWEST -> blocked.frames.pollLast().release();
+        		}
+        	}
+
+        	@Override
+        	public void close() {
+        		stopping = true;
+        		workers.values().forEach(w -> w.thread.interrupt());
+        		try {
+        			reader.join();
+        			for (Worker worker : workers.values()) {
+        				worker.thread.join();
+        			}
+        		} catch (InterruptedException e) {
+        			Thread.currentThread().interrupt();
+        			throw new VelvetVideoException(e);
+        		}
+        		for (Worker worker : workers.values()) {
+        			worker.packets.stream().filter(p -> p != packet).forEach(PacketQueue::free);
+        			worker.frames.forEach(IDecodedPacket::release);
+        		}
+        	}
+        }
+
         @Override
         public List<? extends IVideoDecoderStream> videoStreams() {
             return new ArrayList<>(indexToVideoStream.values());
@@ -1182,9 +2079,19 @@ public class VelvetVideoLib implements IVelvetVideoLib {
 
         @Override
         public void close() {
+        	if (closed) {
+        		return;
+        	}
+        	closed = true;
+        	stopPipeline();
         	libavcodec.av_packet_free(new Pointer[] {Struct.getMemory(packet)});
             this.allStreams.forEach(AbstractDecoderStream::close);
             // dispose resources
+            if (input == null) {
+                // natively opened input, libavformat closes its own I/O context
+                libavformat.avformat_close_input(new PointerByReference(Struct.getMemory(formatCtx)));
+                return;
+            }
             AVIOContext avio = formatCtx.pb.get();
             libavutil.av_free(avio.buffer.get());
             libavformat.avio_context_free(new Pointer[] {Struct.getMemory(avio)});
@@ -7,6 +7,9 @@ class VideoEncoderBuilderImpl extends AbstractEncoderBuilderImpl<IVideoEncoderBu
 
 	Integer width;
 	Integer height;
+	int slices;
+	int chunkFrames;
+	int chunkParallelism;
 
 	public VideoEncoderBuilderImpl(String codec) {
 		super(codec);
@@ -23,4 +26,17 @@ class VideoEncoderBuilderImpl extends AbstractEncoderBuilderImpl<IVideoEncoderBu
 		return this;
 	}
 
+	@Override
+	public IVideoEncoderBuilder chunked(int chunkFrames, int parallelism) {
+		this.chunkFrames = chunkFrames;
+		this.chunkParallelism = parallelism;
+		return this;
+	}
+
+	@Override
+	public IVideoEncoderBuilder slices(int slices) {
+		this.slices = slices;
+		return this;
+	}
+
 }
\ No newline at end of file
@@ -93,7 +93,7 @@ public class AVCodecContext extends Struct {
     Signed32 colorspace = new Signed32();
     Signed32 color_range = new Signed32();
     Signed32 chroma_sample_location = new Signed32();
-    Signed32 slices = new Signed32();
+    public Signed32 slices = new Signed32();
     Signed32 field_order = new Signed32(); // OK
 
     /* audio only */
@@ -161,4 +161,30 @@ public class AVCodecContext extends Struct {
     Pointer stats_in = new Pointer();
     Signed32 workaround_bugs = new Signed32();
     public Signed32 strict_std_compliance = new Signed32();
+    Signed32 error_concealment = new Signed32();
+    Signed32 debug = new Signed32();
+    Signed32 debug_mv = new Signed32();
+    Signed32 err_recognition = new Signed32();
+    int64_t reordered_opaque = new int64_t();
+    Pointer hwaccel = new Pointer();
+    Pointer hwaccel_context = new Pointer();
+    Unsigned64[] error = array(new Unsigned64[8]);
+    Signed32 dct_algo = new Signed32();
+    Signed32 idct_algo = new Signed32();
+    Signed32 bits_per_coded_sample = new Signed32();
+    Signed32 bits_per_raw_sample = new Signed32();
+    Signed32 lowres = new Signed32();
+    Pointer coded_frame = new Pointer();
+    public Signed32 thread_count = new Signed32();
+    public Signed32 thread_type = new Signed32();
+    public Signed32 active_thread_type = new Signed32();
+    Signed32 thread_safe_callbacks = new Signed32();
+    Pointer execute = new Pointer();
+    Pointer execute2 = new Pointer();
+    Signed32 nsse_weight = new Signed32();
+    public Signed32 profile = new Signed32();
+    public Signed32 level = new Signed32();
+    public Signed32 skip_loop_filter = new Signed32(); // enum AVDiscard
+    public Signed32 skip_idct = new Signed32();
+    public Signed32 skip_frame = new Signed32();
 }
\ No newline at end of file
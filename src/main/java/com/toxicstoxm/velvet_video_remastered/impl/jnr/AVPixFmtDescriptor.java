@@ -0,0 +1,17 @@
+package com.toxicstoxm.velvet_video_remastered.impl.jnr;
+
+import jnr.ffi.Runtime;
+import jnr.ffi.Struct;
+
+public class AVPixFmtDescriptor extends Struct {
+
+    public AVPixFmtDescriptor(Runtime runtime) {
+        super(runtime);
+    }
+
+    public Struct.String name = new AsciiStringRef();
+    public Unsigned8 nb_components = new Unsigned8();
+    public Unsigned8 log2_chroma_w = new Unsigned8();
+    public Unsigned8 log2_chroma_h = new Unsigned8();
+    public Unsigned64 flags = new Unsigned64();
+}
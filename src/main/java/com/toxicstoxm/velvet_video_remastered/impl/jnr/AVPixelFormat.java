@@ -2,6 +2,9 @@ package com.toxicstoxm.velvet_video_remastered.impl.jnr;
 
 import jnr.ffi.util.EnumMapper.IntegerEnum;
 
+import java.awt.image.BufferedImage;
+import java.nio.ByteOrder;
+
 public enum AVPixelFormat implements IntegerEnum {
     AV_PIX_FMT_YUV420P, /// < planar YUV 4:2:0, 12bpp, (1 Cr & Cb sample per 2x2 Y samples)
     AV_PIX_FMT_YUYV422, /// < packed YUV 4:2:2, 16bpp, Y0 Cb Y1 Cr
@@ -57,8 +60,30 @@ public enum AVPixelFormat implements IntegerEnum {
         return ordinal();
     }
 
+    /**
+     * Native layout of a standard {@link BufferedImage} type's raster. Int and ushort pixels are stored in native byte order.
+     * @param type buffered image type
+     * @return matching pixel format, or null if the type has no native counterpart and needs to be redrawn
+     */
     public static AVPixelFormat avformatOf(int type) {
-    	// TODO: issue a warning
-        return AVPixelFormat.AV_PIX_FMT_BGR24;
+    	boolean le = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    	return switch (type) {
+    		case BufferedImage.TYPE_3BYTE_BGR -> AV_PIX_FMT_BGR24;
+    		case BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_4BYTE_ABGR_PRE -> AV_PIX_FMT_ABGR;
+    		case BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_INT_RGB -> le ? AV_PIX_FMT_BGRA : AV_PIX_FMT_ARGB;
+    		case BufferedImage.TYPE_INT_BGR -> le ? AV_PIX_FMT_RGBA : AV_PIX_FMT_ABGR;
+    		case BufferedImage.TYPE_BYTE_GRAY -> AV_PIX_FMT_GRAY8;
+    		case BufferedImage.TYPE_USHORT_GRAY -> le ? AV_PIX_FMT_GRAY16LE : AV_PIX_FMT_GRAY16BE;
+    		case BufferedImage.TYPE_USHORT_565_RGB -> le ? AV_PIX_FMT_RGB565LE : AV_PIX_FMT_RGB565BE;
+    		case BufferedImage.TYPE_USHORT_555_RGB -> le ? AV_PIX_FMT_RGB555LE : AV_PIX_FMT_RGB555BE;
+    		default -> null;
+    	};
+    }
+
+    /**
+     * @return true for image types whose fourth byte is padding rather than alpha
+     */
+    public static boolean hasPaddingByte(int type) {
+    	return type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_BGR;
     }
 }
\ No newline at end of file
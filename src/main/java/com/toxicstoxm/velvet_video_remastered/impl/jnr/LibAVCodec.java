@@ -20,10 +20,22 @@ public interface LibAVCodec {
 
     int CODEC_FLAG_GLOBAL_HEADER  = 1 << 22;
 
+    int FF_THREAD_FRAME = 1;
+    int FF_THREAD_SLICE = 2;
+
+    int AVDISCARD_DEFAULT = 0;
+    int AVDISCARD_NONREF = 8;
+    int AVDISCARD_BIDIR = 16;
+    int AVDISCARD_NONINTRA = 24;
+    int AVDISCARD_NONKEY = 32;
+    int AVDISCARD_ALL = 48;
+
 	AVCodec avcodec_find_encoder_by_name(String name);
 
 	AVPacket av_packet_alloc();
 
+	AVPacket av_packet_clone(@In AVPacket src);
+
 	void av_init_packet(AVPacket packet);
 	int av_new_packet(AVPacket packet, int length);
 
@@ -15,12 +15,22 @@ public interface LibAVFormat {
 
     int AVFMT_FLAG_CUSTOM_IO =  0x0080;
     int AVFMT_GLOBALHEADER = 0x0040;
+    int AVFMT_NOFILE = 0x0001;
+
+    int AVIO_FLAG_READ = 1;
+    int AVIO_FLAG_WRITE = 2;
 
     int  AVSEEK_FLAG_BACKWARD = 1; ///< seek backward
     int  AVSEEK_FLAG_BYTE     = 2; ///< seeking based on position in bytes
     int  AVSEEK_FLAG_ANY      = 4; ///< seek to any frame, even non-keyframes
     int  AVSEEK_FLAG_FRAME    = 8;
 
+    int SEEK_SET = 0;             ///< set file offset to offset
+    int SEEK_CUR = 1;             ///< set file offset to current plus offset
+    int SEEK_END = 2;             ///< set file offset to EOF plus offset
+    int AVSEEK_SIZE = 0x10000;    ///< return the stream size instead of seeking
+    int AVSEEK_FORCE = 0x20000;   ///< seek even if it is expensive, may be or-ed to whence
+
     AVInputFormat av_demuxer_iterate(PointerByReference opaque);
 
     AVOutputFormat av_muxer_iterate	(PointerByReference opaque);
@@ -58,7 +68,7 @@ public interface LibAVFormat {
 	interface ISeeker {
 		@Delegate
 		@StdCall
-		int seek(Pointer opaque, int offset, int whence);
+		long seek(Pointer opaque, long offset, int whence);
 	}
 
 	interface ICustomAvioCallback extends LibAVFormat.IPacketIO, LibAVFormat.ISeeker {
@@ -68,6 +78,10 @@ public interface LibAVFormat {
 
 	int avio_open(PointerByReference pbref, String url, int flags);
 
+	int avio_closep(PointerByReference pbref);
+
+	void avformat_close_input(PointerByReference ctx);
+
 	AVFormatContext avformat_alloc_context();
 
 	int avformat_find_stream_info(AVFormatContext context, Pointer[] options);
@@ -22,6 +22,7 @@ public interface LibAVUtil {
 	int AVERROR_EAGAIN = -11;
 	int AVERROR_INVALIDDATA = -1094995529;
 	long AVNOPTS_VALUE = -9223372036854775808L;
+	long AV_PIX_FMT_FLAG_ALPHA = 1 << 7;
 
 
 	AVFrame av_frame_alloc();
@@ -29,8 +30,15 @@ public interface LibAVUtil {
 	int av_frame_get_buffer(AVFrame frame, int align);
 	void av_frame_unref(AVFrame frame);
 	void av_frame_free(Pointer[] frameref);
+	int av_frame_copy(AVFrame dst, @In AVFrame src);
+	int av_frame_copy_props(AVFrame dst, @In AVFrame src);
 
 	int av_image_alloc(Pointer[] pointers, int[] linesizes, int w, int h, AVPixelFormat pix_fmt, int align);
+	int av_image_fill_linesizes(int[] linesizes, AVPixelFormat pix_fmt, int width);
+
+	AVPixFmtDescriptor av_pix_fmt_desc_get(int pix_fmt);
+	int av_pix_fmt_count_planes(int pix_fmt);
+	String av_get_pix_fmt_name(int pix_fmt);
 
 	int av_dict_set(Pointer[] dictionary, String key, String value, int flags);
 
@@ -53,7 +61,9 @@ public interface LibAVUtil {
 
 	long av_frame_get_pkt_duration(AVFrame frame);
 
-	void av_samples_alloc(Pointer[] buffer, int[] linesize, int nb_channels, int nb_samples, AVSampleFormat sample_fmt, int align);
+	long av_rescale(long a, long b, long c);
+
+	int av_samples_alloc(Pointer[] buffer, int[] linesize, int nb_channels, int nb_samples, AVSampleFormat sample_fmt, int align);
 	void av_freep(Pointer[] buffer);
 	void av_free(Pointer buffer);
 
@@ -11,5 +11,7 @@ public interface LibSwResample {
 	int swr_convert(Pointer swrContext, Pointer[] out, int out_count, Pointer in, int in_count);
 	int swr_convert(Pointer swrContext, Pointer out, int out_count, Pointer[] in, int in_count);
 
+	int swr_get_out_samples(Pointer swr, int in_samples);
+
 	void swr_free(Pointer[] pointers);
 }
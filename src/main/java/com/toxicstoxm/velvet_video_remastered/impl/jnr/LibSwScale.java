@@ -1,9 +1,21 @@
 package com.toxicstoxm.velvet_video_remastered.impl.jnr;
 
 import jnr.ffi.Pointer;
+import jnr.ffi.annotations.In;
 
 public interface LibSwScale {
+
+    int SWS_FAST_BILINEAR = 1;
+    int SWS_BILINEAR = 2;
+    int SWS_BICUBIC = 4;
+    int SWS_POINT = 0x10;
+    int SWS_AREA = 0x20;
+    int SWS_LANCZOS = 0x200;
+
     SwsContext sws_getContext(int srcW, int srcH, AVPixelFormat srcFormat, int dstW, int dstH, AVPixelFormat dstFormat, int flags, Pointer srcFilter, Pointer destFilter, Pointer param);
+    SwsContext sws_getCachedContext(SwsContext context, int srcW, int srcH, AVPixelFormat srcFormat, int dstW, int dstH, AVPixelFormat dstFormat, int flags, Pointer srcFilter, Pointer destFilter, Pointer param);
     int sws_scale(SwsContext ctx, Pointer inData, Pointer inStride, int srcSliceY, int height, Pointer outData, Pointer outStride);
+    int sws_scale(SwsContext ctx, @In Pointer[] inData, @In int[] inStride, int srcSliceY, int height, Pointer outData, Pointer outStride);
+    int sws_scale(SwsContext ctx, @In Pointer[] inData, @In int[] inStride, int srcSliceY, int height, @In Pointer[] outData, @In int[] outStride);
     void sws_freeContext(SwsContext swsContext);
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package com.toxicstoxm.velvet_video_remastered.impl.middle;
+
+import com.toxicstoxm.velvet_video_remastered.OverflowPolicy;
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
+import com.toxicstoxm.velvet_video_remastered.impl.VelvetVideoLib;
+import com.toxicstoxm.velvet_video_remastered.tools.logging.VelvetVideoLogAreaBundle;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single worker thread executing submitted tasks in order from a bounded queue. The first task failure stops the worker;
+ * it is rethrown to the submitting thread by the next {@link #submit(Runnable)} or by {@link #finish()}.
+ */
+public class AsyncWorker {
+
+	private static final Runnable END = () -> {};
+
+	private final BlockingDeque<Runnable> tasks;
+	private final OverflowPolicy policy;
+	private final String name;
+	private final Thread thread;
+	private volatile Throwable failure;
+
+	public AsyncWorker(@NotNull String name, int depth, @NotNull OverflowPolicy policy) {
+		this.name = name;
+		this.tasks = new LinkedBlockingDeque<>(depth);
+		this.policy = policy;
+		this.thread = new Thread(this::run, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	private void run() {
+		try {
+			for (;;) {
+				Runnable task = tasks.take();
+				if (task == END) {
+					return;
+				}
+				task.run();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Throwable t) {
+			failure = t;
+			tasks.clear();
+		}
+	}
+
+	/**
+	 * Queues a task. When the queue is full the overflow policy decides: wait, fail, or drop the oldest queued or this task.
+	 * @return false if the task was dropped
+	 */
+	public boolean submit(@NotNull Runnable task) {
+		checkFailure();
+		if (tasks.offerLast(task)) {
+			return true;
+		}
+		switch (policy) {
+			case BLOCK -> {
+				try {
+					while (!tasks.offerLast(task, 100, TimeUnit.MILLISECONDS)) {
+						checkFailure();
+					}
+					return true;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new VelvetVideoException(e);
+				}
+			}
+			case DROP_OLDEST -> {
+				tasks.pollFirst();
+				VelvetVideoLib.getLogger().debug(name + ": queue full, dropping oldest frame", new VelvetVideoLogAreaBundle.Encoder());
+				return tasks.offerLast(task);
+			}
+			case DROP_NEWEST -> {
+				VelvetVideoLib.getLogger().debug(name + ": queue full, dropping frame", new VelvetVideoLogAreaBundle.Encoder());
+				return false;
+			}
+			default -> throw new VelvetVideoException(name + ": queue is full (" + tasks.size() + " frames)");
+		}
+	}
+
+	/**
+	 * Waits until all queued tasks are executed and stops the worker.
+	 */
+	public void finish() {
+		try {
+			if (failure == null) {
+				tasks.putLast(END);
+			}
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new VelvetVideoException(e);
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() {
+		Throwable t = failure;
+		if (t instanceof VelvetVideoException) {
+			throw (VelvetVideoException) t;
+		}
+		if (t != null) {
+			throw new VelvetVideoException(name + " failed", t);
+		}
+	}
+}
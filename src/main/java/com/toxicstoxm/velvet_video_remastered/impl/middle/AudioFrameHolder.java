@@ -2,6 +2,8 @@ package com.toxicstoxm.velvet_video_remastered.impl.middle;
 
 import com.toxicstoxm.velvet_video_remastered.IAudioDecoderStream;
 import com.toxicstoxm.velvet_video_remastered.IAudioFrame;
+import com.toxicstoxm.velvet_video_remastered.SampleLayout;
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
 import com.toxicstoxm.velvet_video_remastered.impl.JNRHelper;
 import com.toxicstoxm.velvet_video_remastered.impl.Libraries;
 import com.toxicstoxm.velvet_video_remastered.impl.VelvetVideoLib.DemuxerImpl.AbstractDecoderStream;
@@ -11,15 +13,23 @@ import jnr.ffi.Struct;
 import org.jetbrains.annotations.NotNull;
 
 import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 
 public class AudioFrameHolder implements AutoCloseable, IFrameHolder {
 
     public final AVFrame frame;
 	private final AVRational timebase;
-	private final Pointer swrContext;
+	private Pointer swrContext;
 	private final AVCodecContext codecCtx;
 	private AudioFormat userFormat;
 	private AVSampleFormat userSampleFormat;
+	private AVSampleFormat sampleFormat;
+	private SampleLayout layout = SampleLayout.PCM;
+	private FramePool<ByteBuffer> bufferPool;
+
+	private static final int DEFAULT_FRAME_SAMPLES = 1024;
 
 	private static final LibAVUtil libavutil = JNRHelper.load(LibAVUtil.class, Libraries.avutil, Libraries.avutil_version);
 	private static final LibSwResample libavresample = JNRHelper.load(LibSwResample.class, Libraries.swresample, Libraries.swresample_version);
@@ -27,6 +37,10 @@ public class AudioFrameHolder implements AutoCloseable, IFrameHolder {
 	private int userBufferSamplesSize;
 	private int frameSamples;
 	private int bytesPerSample;
+	private int pendingBytes;
+	private int bufferPoolSize;
+	private boolean bufferPoolBlock;
+	private long trimTo = -1;
 
     public AudioFrameHolder(AVRational timebase, boolean encode, AVCodecContext codecCtx, AudioFormat userFormat) {
         this.frame =  libavutil.av_frame_alloc();
@@ -34,11 +48,13 @@ public class AudioFrameHolder implements AutoCloseable, IFrameHolder {
         this.codecCtx = codecCtx;
         this.userFormat = userFormat;
         this.userSampleFormat = AVSampleFormat.from(userFormat);
+        this.sampleFormat = userSampleFormat;
         this.swrContext = initResampler(encode);
         this.userBuffer = new Pointer[] {null};
-        this.bytesPerSample = userSampleFormat.bytesPerSample() * userFormat.getChannels();
+        this.bytesPerSample = sampleFormat.bytesPerSample() * userFormat.getChannels();
 		if (encode) {
-			this.frameSamples = codecCtx.frame_size.get();
+			// codecs accepting any frame size (PCM and the like) report 0
+			this.frameSamples = codecCtx.frame_size.get() > 0 ? codecCtx.frame_size.get() : DEFAULT_FRAME_SAMPLES;
 			frame.nb_samples.set(frameSamples);
 			frame.format.set(codecCtx.sample_fmt.longValue());
 			frame.channel_layout.set(codecCtx.channel_layout.get());
@@ -56,7 +72,7 @@ public class AudioFrameHolder implements AutoCloseable, IFrameHolder {
     	libavutil.av_opt_set_int(swr, !encode ? "in_sample_rate" : "out_sample_rate", codecCtx.sample_rate.get(), 0);
     	libavutil.av_opt_set_int(swr, !encode ? "out_sample_rate" : "in_sample_rate", (int)userFormat.getSampleRate(), 0);
     	libavutil.av_opt_set_sample_fmt(swr, !encode ? "in_sample_fmt" : "out_sample_fmt",  codecCtx.sample_fmt.get(), 0);
-    	libavutil.av_opt_set_sample_fmt(swr, !encode ? "out_sample_fmt" : "in_sample_fmt", userSampleFormat, 0);
+    	libavutil.av_opt_set_sample_fmt(swr, !encode ? "out_sample_fmt" : "in_sample_fmt", sampleFormat, 0);
         libavutil.checkcode(libavresample.swr_init(swr));
         return swr;
 	}
@@ -68,36 +84,145 @@ public class AudioFrameHolder implements AutoCloseable, IFrameHolder {
 		return libavutil.av_get_default_channel_layout(targetChannels);
 	}
 
+	/**
+	 * Switches decoded samples to another layout by recreating the resampler.
+	 */
+	public void sampleLayout(@NotNull SampleLayout layout) {
+		this.layout = layout;
+		this.sampleFormat = switch (layout) {
+			case PCM -> userSampleFormat;
+			case FLOAT_INTERLEAVED -> AVSampleFormat.AV_SAMPLE_FMT_FLT;
+			case FLOAT_PLANAR -> AVSampleFormat.AV_SAMPLE_FMT_FLTP;
+		};
+		this.bytesPerSample = sampleFormat.bytesPerSample() * userFormat.getChannels();
+		libavresample.swr_free(new Pointer[] {swrContext});
+		this.swrContext = initResampler(false);
+		freeUserBuffer();
+		bufferPool(bufferPoolSize, bufferPoolBlock);
+	}
+
+	public void bufferPool(int size, boolean block) {
+		this.bufferPoolSize = size;
+		this.bufferPoolBlock = block;
+		int frameSamples = codecCtx.frame_size.get() > 0 ? codecCtx.frame_size.get() : DEFAULT_FRAME_SAMPLES;
+		this.bufferPool = size > 0 ? new FramePool<>(size, block, () -> ByteBuffer.allocateDirect(frameSamples * bytesPerSample)) : null;
+	}
+
 	private byte @NotNull [] samples(@NotNull AVFrame frame) {
-		reallocUserBuffer(frame.nb_samples.get());
-		int frame_count = libavresample.swr_convert(swrContext, userBuffer, userBufferSamplesSize, JNRHelper.ptr(frame.data[0]), userBufferSamplesSize);
-    	int bytesCount = frame_count * bytesPerSample;
-    	byte[] b1 = new byte[bytesCount];
-    	userBuffer[0].get(0, b1, 0, bytesCount);
-    	return b1;
-    }
+		int maxSamples = libavresample.swr_get_out_samples(swrContext, frame.nb_samples.get());
+		reallocUserBuffer(maxSamples);
+		int count = libavutil.checkcode(libavresample.swr_convert(swrContext, userBuffer, maxSamples, JNRHelper.ptr(frame.data[0]), frame.nb_samples.get()));
+		byte[] b1 = new byte[count * bytesPerSample];
+		if (sampleFormat.planar()) {
+			int planeBytes = count * sampleFormat.bytesPerSample();
+			for (int c = 0; c < userBuffer.length; c++) {
+				userBuffer[c].get(0, b1, c * planeBytes, planeBytes);
+			}
+		} else {
+			userBuffer[0].get(0, b1, 0, b1.length);
+		}
+		return b1;
+	}
+
+	/**
+	 * Converts straight into a pooled direct buffer. Buffers too small for the frame are replaced by bigger ones.
+	 */
+	private @NotNull ByteBuffer pooledSamples(@NotNull AVFrame frame, @NotNull ByteBuffer target) {
+		int maxSamples = libavresample.swr_get_out_samples(swrContext, frame.nb_samples.get());
+		int planes = sampleFormat.planar() ? userFormat.getChannels() : 1;
+		int planeCapacity = maxSamples * sampleFormat.bytesPerSample();
+		Pointer base = JNRHelper.pointer(target);
+		Pointer[] out = new Pointer[planes];
+		for (int c = 0; c < planes; c++) {
+			out[c] = base.slice((long) c * planeCapacity);
+		}
+		int count = libavutil.checkcode(libavresample.swr_convert(swrContext, out, maxSamples, JNRHelper.ptr(frame.data[0]), frame.nb_samples.get()));
+		int planeBytes = count * sampleFormat.bytesPerSample();
+		for (int c = 1; c < planes; c++) {
+			target.put(c * planeBytes, target, c * planeCapacity, planeBytes);
+		}
+		return target.slice(0, count * bytesPerSample);
+	}
+
+	private @NotNull ByteBuffer dropLeading(@NotNull ByteBuffer samples, int count, int skip) {
+		if (!sampleFormat.planar()) {
+			return samples.slice(skip * bytesPerSample, (count - skip) * bytesPerSample);
+		}
+		int sampleBytes = sampleFormat.bytesPerSample();
+		int keep = count - skip;
+		for (int c = 0; c < userFormat.getChannels(); c++) {
+			samples.put(c * keep * sampleBytes, samples, (c * count + skip) * sampleBytes, keep * sampleBytes);
+		}
+		return samples.slice(0, keep * bytesPerSample);
+	}
 
 	private void reallocUserBuffer(int size) {
-		if (size != userBufferSamplesSize) {
-			if (this.userBuffer[0] != null) {
-				 libavutil.av_freep(userBuffer);
-			}
+		if (size > userBufferSamplesSize) {
+			freeUserBuffer();
+			userBuffer = new Pointer[sampleFormat.planar() ? userFormat.getChannels() : 1];
 			userBufferSamplesSize = size;
-			libavutil.av_samples_alloc(userBuffer, null, userFormat.getChannels(), size, userSampleFormat, 0);
+			// no alignment padding, so that a packed buffer holds exactly frameBytes
+			libavutil.checkcode(libavutil.av_samples_alloc(userBuffer, null, userFormat.getChannels(), size, sampleFormat, 1));
+		}
+	}
+
+	private void freeUserBuffer() {
+		if (userBuffer[0] != null) {
+			libavutil.av_freep(userBuffer);
 		}
+		userBuffer = new Pointer[] {null};
+		userBufferSamplesSize = 0;
 	}
 
 	public int frameBytes() {
 		return frameSamples * userSampleFormat.bytesPerSample() * userFormat.getChannels();
 	}
 
-	public int put(byte @NotNull [] samples, int offset) {
+	/**
+	 * Appends samples to the native staging buffer, which works as the encoder's FIFO. Takes at most the bytes missing to complete a frame.
+	 * @return number of samples in the converted frame if the frame got complete, 0 otherwise
+	 */
+	public int fill(@NotNull ByteBuffer samples) {
+		reallocUserBuffer(frameSamples);
+		int bytes = Math.min(samples.remaining(), frameBytes() - pendingBytes);
+		JNRHelper.buffer(userBuffer[0], frameBytes()).put(pendingBytes, samples, samples.position(), bytes);
+		samples.position(samples.position() + bytes);
+		pendingBytes += bytes;
+		return pendingBytes == frameBytes() ? convertPending() : 0;
+	}
+
+	/**
+	 * Float counterpart of {@link #fill(ByteBuffer)}, for 32-bit float sample formats.
+	 */
+	public int fill(@NotNull FloatBuffer samples) {
+		if (userFormat.getEncoding() != AudioFormat.Encoding.PCM_FLOAT || userFormat.getSampleSizeInBits() != 32) {
+			throw new VelvetVideoException("Float samples need a 32-bit PCM_FLOAT input format, the stream format is " + userFormat);
+		}
+		if (pendingBytes % Float.BYTES != 0) {
+			throw new VelvetVideoException("Pending sample bytes (" + pendingBytes + ") do not end on a float, complete the last sample before encoding float samples");
+		}
 		reallocUserBuffer(frameSamples);
-		int sampleBytes = Math.min(frameBytes(), samples.length - offset);
-		int sampleCount = sampleBytes / bytesPerSample;
-		userBuffer[0].put(0, samples, offset, sampleBytes);
+		int floats = Math.min(samples.remaining(), (frameBytes() - pendingBytes) / Float.BYTES);
+		JNRHelper.buffer(userBuffer[0], frameBytes()).order(ByteOrder.nativeOrder()).asFloatBuffer()
+				.put(pendingBytes / Float.BYTES, samples, samples.position(), floats);
+		samples.position(samples.position() + floats);
+		pendingBytes += floats * Float.BYTES;
+		return pendingBytes == frameBytes() ? convertPending() : 0;
+	}
+
+	/**
+	 * Converts the samples left in the staging buffer into a short last frame.
+	 * @return number of samples in the frame, 0 if there was nothing left
+	 */
+	public int flush() {
+		return pendingBytes >= bytesPerSample ? convertPending() : 0;
+	}
+
+	private int convertPending() {
+		int sampleCount = pendingBytes / bytesPerSample;
 		libavutil.checkcode(libavresample.swr_convert(swrContext, JNRHelper.ptr(frame.data[0]), sampleCount, userBuffer, sampleCount));
 		frame.nb_samples.set(sampleCount);
+		pendingBytes = 0;
 		return sampleCount;
 	}
 
@@ -105,9 +230,7 @@ public class AudioFrameHolder implements AutoCloseable, IFrameHolder {
 	public void close() {
        libavutil.av_frame_free(new Pointer[] {Struct.getMemory(frame)});
        libavresample.swr_free(new Pointer[] {swrContext});
-       if (this.userBuffer != null) {
-    	   libavutil.av_freep(userBuffer);
-       }
+       freeUserBuffer();
     }
 
 	@Override
@@ -115,6 +238,19 @@ public class AudioFrameHolder implements AutoCloseable, IFrameHolder {
 		return frame;
 	}
 
+	/**
+	 * Prepares for decoding after a seek: drops the samples buffered in the resampler, and makes decoding drop the samples
+	 * preceding the target, so that the first frame starts exactly at it.
+	 * @param sample index of the first sample to deliver, at the output sample rate
+	 */
+	public void trimTo(long sample) {
+		this.trimTo = sample;
+		libavutil.checkcode(libavresample.swr_init(swrContext));
+	}
+
+	/**
+	 * @return the decoded frame, or null if all of its samples precede the seek target
+	 */
 	@Override
 	public IAudioFrame decode(AVFrame frame, AbstractDecoderStream stream) {
 		long pts = pts();
@@ -122,9 +258,41 @@ public class AudioFrameHolder implements AutoCloseable, IFrameHolder {
 			pts = 0;
 		}
 		long duration = libavutil.av_frame_get_pkt_duration(frame);
-		byte[] samples = samples(frame);
-		long nanostamp = pts * 1000000000L * timebase.num.get() / timebase.den.get();
-		long nanoduration = duration * 1000000000L * timebase.num.get() / timebase.den.get();
-		return new AudioFrameImpl(samples, nanostamp, nanoduration, (IAudioDecoderStream)stream);
+		long nanostamp = libavutil.av_rescale(pts, 1000000000L * timebase.num.get(), timebase.den.get());
+		long nanoduration = libavutil.av_rescale(duration, 1000000000L * timebase.num.get(), timebase.den.get());
+		long rate = (long) userFormat.getSampleRate();
+		long start = libavutil.av_rescale(pts, rate * timebase.num.get(), timebase.den.get());
+		if (trimTo >= 0 && start + frame.nb_samples.get() * rate / codecCtx.sample_rate.get() <= trimTo) {
+			return null;
+		}
+		ByteBuffer pooled = null;
+		ByteBuffer samples;
+		if (bufferPool != null) {
+			pooled = bufferPool.acquire();
+			int bytes = libavresample.swr_get_out_samples(swrContext, frame.nb_samples.get()) * bytesPerSample;
+			if (pooled.capacity() < bytes) {
+				pooled = ByteBuffer.allocateDirect(bytes);
+			}
+			samples = pooledSamples(frame, pooled);
+		} else {
+			samples = ByteBuffer.wrap(samples(frame));
+		}
+		if (trimTo >= 0) {
+			int count = samples.remaining() / bytesPerSample;
+			long skip = trimTo - start;
+			if (skip >= count) {
+				if (pooled != null) {
+					bufferPool.release(pooled);
+				}
+				return null;
+			}
+			if (skip > 0) {
+				samples = dropLeading(samples, count, (int) skip);
+				nanostamp += skip * 1000000000L / rate;
+				nanoduration -= skip * 1000000000L / rate;
+			}
+			trimTo = -1;
+		}
+		return new AudioFrameImpl(samples, layout != SampleLayout.PCM, nanostamp, nanoduration, (IAudioDecoderStream)stream, bufferPool, pooled);
 	}
 }
\ No newline at end of file
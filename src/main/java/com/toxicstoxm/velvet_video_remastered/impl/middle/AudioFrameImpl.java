@@ -2,20 +2,63 @@ package com.toxicstoxm.velvet_video_remastered.impl.middle;
 
 import com.toxicstoxm.velvet_video_remastered.IAudioDecoderStream;
 import com.toxicstoxm.velvet_video_remastered.IAudioFrame;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.Value;
 import lombok.experimental.Accessors;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 @Accessors(fluent = true)
 @Value
 public class AudioFrameImpl implements IAudioFrame {
 
-	byte[] samples;
+	@Getter(AccessLevel.NONE)
+	ByteBuffer samples;
+	@Getter(AccessLevel.NONE)
+	boolean floatSamples;
 	long nanostamp;
     long nanoduration;
     IAudioDecoderStream stream;
+    @Getter(AccessLevel.NONE)
+    FramePool<ByteBuffer> pool;
+    @Getter(AccessLevel.NONE)
+    ByteBuffer pooled;
+    @Getter(AccessLevel.NONE)
+    AtomicBoolean released = new AtomicBoolean();
+
+    @Override
+    public byte[] samples() {
+    	if (pool == null && samples.hasArray() && samples.arrayOffset() == 0 && samples.remaining() == samples.array().length) {
+    		return samples.array();
+    	}
+    	byte[] bytes = new byte[samples.remaining()];
+    	samples.duplicate().get(bytes);
+    	return bytes;
+    }
+
+    @Override
+    public ByteBuffer buffer() {
+    	return samples.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    public FloatBuffer floats() {
+    	return floatSamples ? buffer().asFloatBuffer() : null;
+    }
+
+    @Override
+    public void release() {
+    	if (pool != null && released.compareAndSet(false, true)) {
+    		pool.release(pooled);
+    	}
+    }
 
     @Override
 	public String toString() {
     	return "Audio frame t=" + nanostamp + " stream:" + stream.name();
     }
-}
\ No newline at end of file
+}
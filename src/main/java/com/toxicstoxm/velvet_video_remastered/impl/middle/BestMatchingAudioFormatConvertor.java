@@ -18,8 +18,15 @@ public class BestMatchingAudioFormatConvertor implements Function<AudioFormat, A
 
 	private final Collection<AudioFormat> supportedFormats;
 
+	/**
+	 * Mixer probing is slow, so it runs once per JVM, on first use.
+	 */
+	private static class SystemFormats {
+		private static final Collection<AudioFormat> FORMATS = getSupportedFormats();
+	}
+
 	public BestMatchingAudioFormatConvertor() {
-		this(getSupportedFormats());
+		this(SystemFormats.FORMATS);
 	}
 
 	public BestMatchingAudioFormatConvertor(Collection<AudioFormat> supportedFormats) {
@@ -0,0 +1,232 @@
+package com.toxicstoxm.velvet_video_remastered.impl.middle;
+
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
+import com.toxicstoxm.velvet_video_remastered.impl.JNRHelper;
+import com.toxicstoxm.velvet_video_remastered.impl.Libraries;
+import com.toxicstoxm.velvet_video_remastered.impl.VelvetVideoLib;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.AVCodecContext;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.AVFrame;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.AVPacket;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.LibAVCodec;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.LibAVUtil;
+import com.toxicstoxm.velvet_video_remastered.tools.logging.VelvetVideoLogAreaBundle;
+import jnr.ffi.Pointer;
+import jnr.ffi.Struct;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Encodes a video stream in chunks of consecutive frames, each chunk on its own freshly opened encoder, several chunks in parallel.
+ * A fresh encoder starts with a keyframe and references nothing outside its chunk, so every chunk is a closed GOP sequence.
+ * Packets keep the frames' absolute presentation timestamps and are written chunk by chunk in order, with decoding timestamps
+ * continued across chunks as a single encoder would assign them. Chunks waiting for encoding hold copies of their frames, so memory
+ * use grows with chunk size times parallelism.
+ */
+public class ChunkedEncoder implements AutoCloseable {
+
+	/**
+	 * Opens and frees the encoders of the chunks. Called from the encoding threads.
+	 */
+	public interface ContextFactory {
+		AVCodecContext open();
+
+		void close(AVCodecContext context);
+	}
+
+	private static final LibAVCodec libavcodec = JNRHelper.load(LibAVCodec.class, Libraries.avcodec, Libraries.avcodec_version);
+	private static final LibAVUtil libavutil = JNRHelper.load(LibAVUtil.class, Libraries.avutil, Libraries.avutil_version);
+
+	private final ContextFactory contexts;
+	private final Consumer<AVPacket> output;
+	private final int streamIndex;
+	private final int chunkFrames;
+	private final int parallelism;
+	private final ExecutorService pool;
+	private final Deque<Future<List<AVPacket>>> pending = new ArrayDeque<>();
+	private List<AVFrame> frames = new ArrayList<>();
+	private final DtsStitcher stitcher = new DtsStitcher();
+
+	public ChunkedEncoder(@NotNull ContextFactory contexts, @NotNull Consumer<AVPacket> output, int streamIndex, int chunkFrames, int parallelism) {
+		this.contexts = contexts;
+		this.output = output;
+		this.streamIndex = streamIndex;
+		this.chunkFrames = chunkFrames;
+		this.parallelism = parallelism;
+		this.pool = Executors.newFixedThreadPool(parallelism, task -> {
+			Thread thread = new Thread(task, "velvet-video chunk encoder " + streamIndex);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Copies the frame into the current chunk. Once the chunk is full it is handed to the encoding threads; when all of them
+	 * are busy, waits for the oldest chunk and writes it.
+	 */
+	public void submit(@NotNull AVFrame frame) {
+		AVFrame copy = libavutil.av_frame_alloc();
+		copy.format.set(frame.format.get());
+		copy.width.set(frame.width.get());
+		copy.height.set(frame.height.get());
+		frames.add(copy);
+		libavutil.checkcode(libavutil.av_frame_get_buffer(copy, 0));
+		libavutil.checkcode(libavutil.av_frame_copy(copy, frame));
+		libavutil.checkcode(libavutil.av_frame_copy_props(copy, frame));
+		if (frames.size() == chunkFrames) {
+			dispatch();
+		}
+		while (pending.size() > parallelism || !pending.isEmpty() && pending.peek().isDone()) {
+			writeHead();
+		}
+	}
+
+	private void dispatch() {
+		List<AVFrame> chunk = frames;
+		pending.add(pool.submit(() -> encode(chunk)));
+		frames = new ArrayList<>();
+	}
+
+	private @NotNull List<AVPacket> encode(@NotNull List<AVFrame> chunk) {
+		List<AVPacket> packets = new ArrayList<>();
+		AVPacket packet = libavcodec.av_packet_alloc();
+		AVCodecContext context = contexts.open();
+		try {
+			for (AVFrame frame : chunk) {
+				send(context, frame, packet, packets);
+			}
+			send(context, null, packet, packets);
+			VelvetVideoLib.getLogger().debug("Encoder: stream " + streamIndex + ": chunk of " + chunk.size() + " frames encoded into " + packets.size() + " packets", new VelvetVideoLogAreaBundle.Encoder());
+			return packets;
+		} catch (RuntimeException e) {
+			packets.forEach(PacketQueue::free);
+			throw e;
+		} finally {
+			contexts.close(context);
+			PacketQueue.free(packet);
+			for (AVFrame frame : chunk) {
+				libavutil.av_frame_free(new Pointer[] { Struct.getMemory(frame) });
+			}
+		}
+	}
+
+	private void send(AVCodecContext context, AVFrame frame, AVPacket packet, List<AVPacket> packets) {
+		libavutil.checkcode(libavcodec.avcodec_send_frame(context, frame));
+		for (;;) {
+			int res = libavcodec.avcodec_receive_packet(context, packet);
+			if (res == LibAVUtil.AVERROR_EAGAIN || res == LibAVUtil.AVERROR_EOF) {
+				return;
+			}
+			libavutil.checkcode(res);
+			packet.stream_index.set(streamIndex);
+			packets.add(libavcodec.av_packet_clone(packet));
+			libavcodec.av_packet_unref(packet);
+		}
+	}
+
+	private void writeHead() {
+		List<AVPacket> packets;
+		try {
+			packets = pending.poll().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new VelvetVideoException(e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof VelvetVideoException ve ? ve : new VelvetVideoException(e.getCause());
+		}
+		try {
+			long[] pts = packets.stream().mapToLong(packet -> packet.pts.get()).toArray();
+			long[] dts = stitcher.stitch(pts, packets.stream().mapToLong(packet -> packet.dts.get()).toArray());
+			for (int i = 0; i < packets.size(); i++) {
+				packets.get(i).dts.set(dts[i]);
+				output.accept(packets.get(i));
+			}
+		} finally {
+			packets.forEach(PacketQueue::free);
+		}
+	}
+
+	/**
+	 * Continues decoding timestamps across chunks. Every chunk encoder starts decoding its first frames before their presentation, by
+	 * its reorder delay in packets. The first chunk keeps the encoder's own DTS; in later chunks packet i is given the i-th presentation
+	 * timestamp counted from the delay before the chunk, so DTS stay strictly increasing and never exceed PTS.
+	 * Presentation timestamps are not touched. A chunk reordering deeper than the first one cannot be stitched and fails.
+	 */
+	static final class DtsStitcher {
+
+		private int delay = -1;
+		private long[] tail = new long[0];
+		private long lastDts = LibAVUtil.AVNOPTS_VALUE;
+
+		/**
+		 * @param pts presentation timestamps of a chunk's packets in decoding order
+		 * @param dts decoding timestamps the chunk encoder assigned
+		 * @return decoding timestamps to write
+		 */
+		long[] stitch(long[] pts, long[] dts) {
+			long[] sorted = Arrays.stream(pts).filter(p -> p != LibAVUtil.AVNOPTS_VALUE).sorted().toArray();
+			if (sorted.length == 0) {
+				return dts;
+			}
+			int chunkDelay = (int) Arrays.stream(dts).filter(d -> d != LibAVUtil.AVNOPTS_VALUE && d < sorted[0]).count();
+			long[] result = dts.clone();
+			if (delay < 0) {
+				delay = chunkDelay;
+			} else {
+				if (chunkDelay > delay) {
+					throw new VelvetVideoException("Chunk encoder reorders frames by " + chunkDelay + " packets, more than the " + delay + " of the first chunk; use a fixed number of B-frames with chunked encoding");
+				}
+				long[] order = concat(tail, sorted);
+				for (int i = 0, next = 0; i < result.length; i++) {
+					if (pts[i] != LibAVUtil.AVNOPTS_VALUE) {
+						result[i] = order[next++];
+					}
+				}
+			}
+			for (int i = 0; i < result.length; i++) {
+				if (result[i] == LibAVUtil.AVNOPTS_VALUE) {
+					continue;
+				}
+				if (pts[i] != LibAVUtil.AVNOPTS_VALUE && result[i] > pts[i] || lastDts != LibAVUtil.AVNOPTS_VALUE && result[i] <= lastDts) {
+					throw new VelvetVideoException("Cannot stitch chunk packet PTS/DTS " + pts[i] + "/" + dts[i] + " after DTS " + lastDts);
+				}
+				lastDts = result[i];
+			}
+			long[] presented = concat(tail, sorted);
+			tail = Arrays.copyOfRange(presented, Math.max(0, presented.length - delay), presented.length);
+			return result;
+		}
+
+		private static long[] concat(long[] first, long[] second) {
+			long[] result = Arrays.copyOf(first, first.length + second.length);
+			System.arraycopy(second, 0, result, first.length, second.length);
+			return result;
+		}
+	}
+
+	/**
+	 * Encodes the last, possibly partial, chunk and writes all pending chunks.
+	 */
+	@Override
+	public void close() {
+		try {
+			if (!frames.isEmpty()) {
+				dispatch();
+			}
+			while (!pending.isEmpty()) {
+				writeHead();
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
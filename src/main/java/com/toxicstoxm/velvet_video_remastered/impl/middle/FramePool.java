@@ -0,0 +1,54 @@
+package com.toxicstoxm.velvet_video_remastered.impl.middle;
+
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of reusable frame data, such as images or sample buffers. Elements are created on demand until the pool size is reached.
+ *
+ * @param <T> pooled element type
+ */
+public class FramePool<T> {
+
+	private final BlockingQueue<T> free = new LinkedBlockingQueue<>();
+	private final Supplier<T> factory;
+	private final int size;
+	private final boolean block;
+	private int created;
+
+	public FramePool(int size, boolean block, @NotNull Supplier<T> factory) {
+		this.size = size;
+		this.block = block;
+		this.factory = factory;
+	}
+
+	public @NotNull T acquire() {
+		T element = free.poll();
+		if (element != null) {
+			return element;
+		}
+		synchronized (this) {
+			if (created < size) {
+				created++;
+				return factory.get();
+			}
+		}
+		if (!block) {
+			throw new VelvetVideoException("Frame pool exhausted: all " + size + " pooled frames are in use, release frames after processing them");
+		}
+		try {
+			return free.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new VelvetVideoException(e);
+		}
+	}
+
+	public void release(@NotNull T element) {
+		free.offer(element);
+	}
+}
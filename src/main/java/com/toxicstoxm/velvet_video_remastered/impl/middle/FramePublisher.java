@@ -0,0 +1,163 @@
+package com.toxicstoxm.velvet_video_remastered.impl.middle;
+
+import com.toxicstoxm.velvet_video_remastered.impl.VelvetVideoLib;
+import com.toxicstoxm.velvet_video_remastered.tools.logging.VelvetVideoLogAreaBundle;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single-subscriber publisher pulling items from a blocking source on demand. All source calls and signals run on the executor, one drain at a time,
+ * so the source needs no synchronization. A drain emits a limited batch and then reschedules itself to share the executor with other publishers.
+ *
+ * @param <T> item type
+ */
+public class FramePublisher<T> implements Flow.Publisher<T> {
+
+	private static final int BATCH = 16;
+
+	private final Supplier<T> source;
+	private final Runnable onTerminate;
+	private final Executor executor;
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	/**
+	 * @param source item supplier returning null at the end
+	 * @param onTerminate called once on completion, error or cancellation, from the executor
+	 * @param executor executor to pull items on
+	 */
+	public FramePublisher(@NotNull Supplier<T> source, @NotNull Runnable onTerminate, @NotNull Executor executor) {
+		this.source = source;
+		this.onTerminate = onTerminate;
+		this.executor = executor;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		Objects.requireNonNull(subscriber);
+		if (!subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+				}
+
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("Frame publisher supports a single subscriber only"));
+			return;
+		}
+		subscriber.onSubscribe(new FrameSubscription(subscriber));
+	}
+
+	private class FrameSubscription implements Flow.Subscription, Runnable {
+
+		private final Flow.Subscriber<? super T> subscriber;
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger wip = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile Throwable badRequest;
+		private boolean terminated;
+
+		FrameSubscription(Flow.Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				badRequest = new IllegalArgumentException("Requested " + n + " items, demand must be positive");
+			} else {
+				demand.getAndAccumulate(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			schedule();
+		}
+
+		private void schedule() {
+			if (wip.getAndIncrement() == 0) {
+				executor.execute(this);
+			}
+		}
+
+		@Override
+		public void run() {
+			int missed = 1;
+			for (;;) {
+				if (drain()) {
+					// batch done, keep ownership and continue in a fresh task
+					executor.execute(this);
+					return;
+				}
+				missed = wip.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * @return true if the drain stopped after a full batch with demand left
+		 */
+		private boolean drain() {
+			if (terminated) {
+				return false;
+			}
+			if (cancelled) {
+				terminate();
+				return false;
+			}
+			if (badRequest != null) {
+				terminate();
+				subscriber.onError(badRequest);
+				return false;
+			}
+			for (int emitted = 0; demand.get() > 0 && !cancelled; emitted++) {
+				if (emitted == BATCH) {
+					return true;
+				}
+				T item;
+				try {
+					item = source.get();
+				} catch (Throwable t) {
+					terminate();
+					subscriber.onError(t);
+					return false;
+				}
+				if (item == null) {
+					terminate();
+					subscriber.onComplete();
+					return false;
+				}
+				demand.decrementAndGet();
+				try {
+					subscriber.onNext(item);
+				} catch (Throwable t) {
+					VelvetVideoLib.getLogger().warn("subscriber failed in onNext, cancelling: " + t, new VelvetVideoLogAreaBundle.Demuxer());
+					cancelled = true;
+				}
+			}
+			if (cancelled) {
+				terminate();
+			}
+			return false;
+		}
+
+		private void terminate() {
+			terminated = true;
+			onTerminate.run();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package com.toxicstoxm.velvet_video_remastered.impl.middle;
+
+import com.toxicstoxm.velvet_video_remastered.OverflowPolicy;
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
+import com.toxicstoxm.velvet_video_remastered.impl.JNRHelper;
+import com.toxicstoxm.velvet_video_remastered.impl.Libraries;
+import com.toxicstoxm.velvet_video_remastered.impl.VelvetVideoLib;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.AVPacket;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.LibAVCodec;
+import com.toxicstoxm.velvet_video_remastered.tools.logging.VelvetVideoLogAreaBundle;
+import jnr.ffi.Pointer;
+import jnr.ffi.Struct;
+import lombok.Value;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded queue of demuxed packets waiting for their stream's decoder. Queued packets are references to the demuxer's packet data, no bytes are copied.
+ * Every packet carries the demuxer read sequence, so that packets queued for different streams can be merged back in container order.
+ */
+public class PacketQueue {
+
+	/**
+	 * Loaded on first use, so that the queue itself can work on packets without the native libraries.
+	 */
+	private static final class Native {
+		static final LibAVCodec libavcodec = JNRHelper.load(LibAVCodec.class, Libraries.avcodec, Libraries.avcodec_version);
+	}
+
+	@Accessors(fluent = true)
+	@Value
+	private static class Entry {
+		long sequence;
+		AVPacket packet;
+	}
+
+	private final Deque<Entry> entries = new ArrayDeque<>();
+	private final String streamName;
+	private final int capacity;
+	private final OverflowPolicy policy;
+	private final UnaryOperator<AVPacket> reference;
+	private final Consumer<AVPacket> release;
+
+	public PacketQueue(String streamName, int capacity, @NotNull OverflowPolicy policy) {
+		this(streamName, capacity, policy, packet -> Native.libavcodec.av_packet_clone(packet), PacketQueue::free);
+	}
+
+	/**
+	 * @param reference creates the queue's own reference to an offered packet
+	 * @param release frees a reference created by the queue when it is dropped or cleared
+	 */
+	PacketQueue(String streamName, int capacity, @NotNull OverflowPolicy policy, @NotNull UnaryOperator<AVPacket> reference, @NotNull Consumer<AVPacket> release) {
+		this.streamName = streamName;
+		this.capacity = capacity;
+		this.policy = policy;
+		this.reference = reference;
+		this.release = release;
+	}
+
+	/**
+	 * Queues a new reference to the packet. The caller keeps ownership of the original packet.
+	 */
+	public void offer(@NotNull AVPacket packet, long sequence) {
+		if (entries.size() >= capacity) {
+			switch (policy) {
+				case FAIL -> throw new VelvetVideoException("Packet queue of stream " + streamName + " is full (" + capacity + " packets), read the stream or raise the queue capacity");
+				case DROP_OLDEST -> {
+					VelvetVideoLib.getLogger().warn("packet queue of stream " + streamName + " is full, dropping oldest packet; frames may be corrupted until the next keyframe", new VelvetVideoLogAreaBundle.Demuxer());
+					release.accept(entries.poll().packet());
+				}
+				case DROP_NEWEST -> {
+					VelvetVideoLib.getLogger().warn("packet queue of stream " + streamName + " is full, dropping packet; frames may be corrupted until the next keyframe", new VelvetVideoLogAreaBundle.Demuxer());
+					return;
+				}
+			}
+		}
+		entries.add(new Entry(sequence, reference.apply(packet)));
+	}
+
+	/**
+	 * @return read sequence of the oldest queued packet, or {@link Long#MAX_VALUE} if the queue is empty
+	 */
+	public long headSequence() {
+		Entry head = entries.peek();
+		return head == null ? Long.MAX_VALUE : head.sequence();
+	}
+
+	/**
+	 * @return the oldest queued packet, to be freed by the caller with {@link #free(AVPacket)}, or null if the queue is empty
+	 */
+	public @Nullable AVPacket poll() {
+		Entry head = entries.poll();
+		return head == null ? null : head.packet();
+	}
+
+	public void clear() {
+		entries.forEach(e -> release.accept(e.packet()));
+		entries.clear();
+	}
+
+	public static void free(@NotNull AVPacket packet) {
+		Native.libavcodec.av_packet_free(new Pointer[] { Struct.getMemory(packet) });
+	}
+}
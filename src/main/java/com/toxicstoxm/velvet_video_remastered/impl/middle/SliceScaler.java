@@ -0,0 +1,259 @@
+package com.toxicstoxm.velvet_video_remastered.impl.middle;
+
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
+import com.toxicstoxm.velvet_video_remastered.impl.JNRHelper;
+import com.toxicstoxm.velvet_video_remastered.impl.Libraries;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.AVPixelFormat;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.LibAVUtil;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.LibSwScale;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.SwsContext;
+import jnr.ffi.Pointer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Converts large frames in horizontal bands, each band with its own swscale context, on a shared ForkJoin pool.
+ * Bands are independent only without vertical scaling, so frames changing height are left to a single scaler.
+ * Band edges are aligned to the chroma grid of both formats. With vertically subsampled chroma, a band cannot see the chroma rows
+ * of its neighbours, so it converts a few extra rows on each side into a scratch buffer and only its own rows are copied out.
+ */
+public class SliceScaler implements AutoCloseable {
+
+	private static final int MIN_BAND_HEIGHT = 64;
+	/** rows of overlap per side, in chroma rows, enough for the support of swscale's vertical chroma filters */
+	private static final int OVERLAP_CHROMA_ROWS = 4;
+
+	private static volatile int parallelism = Runtime.getRuntime().availableProcessors();
+	private static volatile long minPixels = 2560L * 1440;
+	private static ForkJoinPool pool;
+	private static final Map<ForkJoinPool, Integer> inFlight = new HashMap<>();
+
+	private static final LibSwScale libswscale = JNRHelper.load(LibSwScale.class, Libraries.swscale, Libraries.swscale_version);
+	private static final LibAVUtil libavutil = JNRHelper.load(LibAVUtil.class, Libraries.avutil, Libraries.avutil_version);
+
+	private SwsContext[] contexts = new SwsContext[0];
+	private Pointer[] scratch = new Pointer[0];
+	private int[] scratchSize = new int[0];
+
+	/**
+	 * Sets library-wide slicing parameters. Frames already being converted are not affected.
+	 */
+	public static synchronized void configure(int parallelism, long minPixels) {
+		if (parallelism < 1) {
+			throw new VelvetVideoException("Conversion parallelism must be at least 1");
+		}
+		if (pool != null && parallelism != SliceScaler.parallelism) {
+			// conversions still running on the old pool finish there, the last one shuts it down
+			if (!inFlight.containsKey(pool)) {
+				pool.shutdown();
+			}
+			pool = null;
+		}
+		SliceScaler.parallelism = parallelism;
+		SliceScaler.minPixels = minPixels;
+	}
+
+	private static synchronized ForkJoinPool acquirePool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		inFlight.merge(pool, 1, Integer::sum);
+		return pool;
+	}
+
+	private static synchronized void releasePool(ForkJoinPool used) {
+		if (inFlight.merge(used, -1, Integer::sum) == 0) {
+			inFlight.remove(used);
+			if (used != pool) {
+				used.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * @return true if a conversion of this size is split into bands
+	 */
+	public static boolean applies(int width, int height, int dstHeight) {
+		return parallelism > 1 && height == dstHeight && (long) width * height >= minPixels && height >= 2 * MIN_BAND_HEIGHT;
+	}
+
+	/**
+	 * Converts a whole frame of the given height, which must not change, band by band.
+	 */
+	public void scale(@NotNull AVPixelFormat src, Pointer @NotNull [] srcData, int @NotNull [] srcStrides, int width, int height,
+			@NotNull AVPixelFormat dst, Pointer @NotNull [] dstData, int @NotNull [] dstStrides, int dstWidth, int flags) {
+		int srcShift = libavutil.av_pix_fmt_desc_get(src.ordinal()).log2_chroma_h.get();
+		int dstShift = libavutil.av_pix_fmt_desc_get(dst.ordinal()).log2_chroma_h.get();
+		Bands layout = new Bands(height, srcShift, dstShift, parallelism);
+		int bands = layout.count();
+		if (contexts.length != bands) {
+			close();
+			contexts = new SwsContext[bands];
+			scratch = new Pointer[bands * 8];
+			scratchSize = new int[bands * 8];
+		}
+		int srcPlanes = libavutil.av_pix_fmt_count_planes(src.ordinal());
+		int dstPlanes = libavutil.av_pix_fmt_count_planes(dst.ordinal());
+		List<Callable<Integer>> tasks = new ArrayList<>(bands);
+		for (int b = 0; b < bands; b++) {
+			int band = b;
+			int y = layout.y(b);
+			int h = layout.height(b);
+			int top = layout.top(b);
+			int rows = layout.rows(b);
+			SwsContext ctx = contexts[b] = libswscale.sws_getCachedContext(contexts[b], width, rows, src, dstWidth, rows, dst, flags, null, null, null);
+			if (ctx == null) {
+				throw new VelvetVideoException("Cannot create scaler from " + width + "x" + rows + " " + src + " to " + dstWidth + "x" + rows + " " + dst);
+			}
+			Pointer[] in = band(srcData, srcStrides, srcPlanes, srcShift, y - top);
+			if (rows == h) {
+				Pointer[] out = band(dstData, dstStrides, dstPlanes, dstShift, y);
+				tasks.add(() -> libswscale.sws_scale(ctx, in, srcStrides, 0, h, out, dstStrides));
+			} else {
+				Pointer[] out = scratch(b, dstStrides, dstPlanes, dstShift, rows);
+				Pointer[] own = band(dstData, dstStrides, dstPlanes, dstShift, y);
+				tasks.add(() -> {
+					int res = libswscale.sws_scale(ctx, in, srcStrides, 0, rows, out, dstStrides);
+					if (res >= 0) {
+						for (int p = 0; p < dstPlanes; p++) {
+							int shift = chromaShift(p, dstShift);
+							int from = layout.ownFrom(band, shift);
+							int count = layout.ownRows(band, shift);
+							out[p].transferTo((long) from * dstStrides[p], own[p], 0, (long) count * dstStrides[p]);
+						}
+					}
+					return res;
+				});
+			}
+		}
+		ForkJoinPool used = acquirePool();
+		try {
+			for (Future<Integer> result : used.invokeAll(tasks)) {
+				libavutil.checkcode(result.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new VelvetVideoException(e);
+		} catch (ExecutionException e) {
+			throw new VelvetVideoException(e.getCause());
+		} finally {
+			releasePool(used);
+		}
+	}
+
+	/**
+	 * Band layout of a frame: band edges on the chroma grid of both formats, and the overlap rows converted around each band.
+	 */
+	static final class Bands {
+		private final int frameHeight;
+		private final int bandHeight;
+		private final int count;
+		private final int overlap;
+
+		Bands(int height, int srcShift, int dstShift, int parallelism) {
+			int align = 1 << Math.max(srcShift, dstShift);
+			int bands = Math.max(1, Math.min(parallelism, height / MIN_BAND_HEIGHT));
+			this.frameHeight = height;
+			this.bandHeight = ((height + bands - 1) / bands + align - 1) / align * align;
+			this.count = (height + bandHeight - 1) / bandHeight;
+			this.overlap = (srcShift > 0 || dstShift > 0) ? OVERLAP_CHROMA_ROWS * align : 0;
+		}
+
+		int count() {
+			return count;
+		}
+
+		/** first own row of a band */
+		int y(int band) {
+			return band * bandHeight;
+		}
+
+		/** own rows of a band */
+		int height(int band) {
+			return Math.min(bandHeight, frameHeight - y(band));
+		}
+
+		/** overlap rows converted above a band */
+		int top(int band) {
+			return Math.min(overlap, y(band));
+		}
+
+		/** overlap rows converted below a band */
+		int bottom(int band) {
+			return Math.min(overlap, frameHeight - y(band) - height(band));
+		}
+
+		/** rows converted for a band, overlap included */
+		int rows(int band) {
+			return top(band) + height(band) + bottom(band);
+		}
+
+		/** first row of a plane with the given chroma shift to copy out of a band's scratch buffer */
+		int ownFrom(int band, int shift) {
+			return top(band) >> shift;
+		}
+
+		/** rows of a plane with the given chroma shift to copy out of a band's scratch buffer */
+		int ownRows(int band, int shift) {
+			return ((top(band) + height(band) + (1 << shift) - 1) >> shift) - ownFrom(band, shift);
+		}
+	}
+
+	/**
+	 * Scratch planes of a band with the destination strides, reused across frames.
+	 */
+	private Pointer @NotNull [] scratch(int band, int[] strides, int planes, int chromaShift, int rows) {
+		Pointer[] out = new Pointer[8];
+		for (int p = 0; p < planes; p++) {
+			int i = band * 8 + p;
+			int size = strides[p] * ((rows + (1 << chromaShift(p, chromaShift)) - 1) >> chromaShift(p, chromaShift));
+			if (scratchSize[i] < size) {
+				if (scratch[i] != null) {
+					libavutil.av_free(scratch[i]);
+				}
+				scratch[i] = libavutil.av_malloc(size);
+				scratchSize[i] = size;
+			}
+			out[p] = scratch[i];
+		}
+		return out;
+	}
+
+	private static int chromaShift(int plane, int chromaShift) {
+		return (plane == 1 || plane == 2) ? chromaShift : 0;
+	}
+
+	private static Pointer @NotNull [] band(Pointer[] data, int[] strides, int planes, int chromaShift, int y) {
+		Pointer[] band = new Pointer[8];
+		for (int p = 0; p < planes; p++) {
+			int row = y >> chromaShift(p, chromaShift);
+			band[p] = data[p].slice((long) row * strides[p]);
+		}
+		return band;
+	}
+
+	@Override
+	public void close() {
+		for (SwsContext ctx : contexts) {
+			if (ctx != null) {
+				libswscale.sws_freeContext(ctx);
+			}
+		}
+		contexts = new SwsContext[0];
+		for (Pointer buffer : scratch) {
+			if (buffer != null) {
+				libavutil.av_free(buffer);
+			}
+		}
+		scratch = new Pointer[0];
+		scratchSize = new int[0];
+	}
+}
@@ -2,6 +2,9 @@ package com.toxicstoxm.velvet_video_remastered.impl.middle;
 
 import com.toxicstoxm.velvet_video_remastered.IVideoDecoderStream;
 import com.toxicstoxm.velvet_video_remastered.IVideoFrame;
+import com.toxicstoxm.velvet_video_remastered.IVideoPlane;
+import com.toxicstoxm.velvet_video_remastered.PixelFormat;
+import com.toxicstoxm.velvet_video_remastered.ScaleAlgorithm;
 import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
 import com.toxicstoxm.velvet_video_remastered.impl.JNRHelper;
 import com.toxicstoxm.velvet_video_remastered.impl.Libraries;
@@ -13,18 +16,56 @@ import org.jetbrains.annotations.NotNull;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
 import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 public class VideoFrameHolder implements AutoCloseable, IFrameHolder {
 
 	public final AVFrame frame;
-	private final AVFrame biframe;
-	private final SwsContext scaleCtx;
+	private AVFrame biframe;
+	private SwsContext scaleCtx;
+	private AVFrame rawframe;
+	private SwsContext rawScaleCtx;
 	private final int width;
 	private final int height;
+	private AVPixelFormat srcFormat;
+	private AVPixelFormat destFormat;
+	private PixelFormat outputFormat = PixelFormat.BGR24;
 	private AVRational timebase;
+	private boolean planesOnly;
+	private boolean exposePlanes = true;
+	private FramePool<BufferedImage> imagePool;
+	private int imagePoolSize;
+	private boolean imagePoolBlock;
+	private int cropX;
+	private int cropY;
+	private int cropWidth;
+	private int cropHeight;
+	private int[] cropOffsets;
+	private int scaleWidth;
+	private int scaleHeight;
+	private int outWidth;
+	private int outHeight;
+	private int scaleFlags;
+	private SliceScaler sliceScaler;
+	private static final Set<AVPixelFormat> LUMA_PLANE_FORMATS = EnumSet.of(AVPixelFormat.AV_PIX_FMT_YUV420P,
+			AVPixelFormat.AV_PIX_FMT_YUV422P, AVPixelFormat.AV_PIX_FMT_YUV444P, AVPixelFormat.AV_PIX_FMT_YUV410P,
+			AVPixelFormat.AV_PIX_FMT_YUV411P, AVPixelFormat.AV_PIX_FMT_GRAY8, AVPixelFormat.AV_PIX_FMT_YUVJ420P,
+			AVPixelFormat.AV_PIX_FMT_YUVJ422P, AVPixelFormat.AV_PIX_FMT_YUVJ444P, AVPixelFormat.AV_PIX_FMT_NV12,
+			AVPixelFormat.AV_PIX_FMT_NV21, AVPixelFormat.AV_PIX_FMT_YUV440P, AVPixelFormat.AV_PIX_FMT_YUVJ440P,
+			AVPixelFormat.AV_PIX_FMT_YUVA420P);
 	private static final LibSwScale libswscale = JNRHelper.load(LibSwScale.class, Libraries.swscale, Libraries.swscale_version);
 	private static final LibAVUtil libavutil = JNRHelper.load(LibAVUtil.class, Libraries.avutil, Libraries.avutil_version);
 
@@ -32,10 +73,127 @@ public class VideoFrameHolder implements AutoCloseable, IFrameHolder {
 			AVRational timebase, boolean encode) {
 		this.width = width;
 		this.height = height;
+		this.srcFormat = srcFormat;
+		this.destFormat = destFormat;
 		this.frame = alloc(width, height, encode ? destFormat : srcFormat);
-		this.biframe = alloc(width, height, encode ? srcFormat : destFormat);
 		this.timebase = timebase;
-		scaleCtx = libswscale.sws_getContext(width, height, srcFormat, width, height, destFormat, 0, null, null, null);
+		this.cropWidth = this.outWidth = width;
+		this.cropHeight = this.outHeight = height;
+	}
+
+	/**
+	 * Conversion frame and scaler are only needed once pixels are converted, so decoders in planes-only mode never allocate them.
+	 * The scaler is looked up through the swscale context cache, so it is only rebuilt when crop, size, format or algorithm change.
+	 */
+	private void prepareScaler() {
+		if (biframe == null) {
+			this.biframe = alloc(outWidth, outHeight, destFormat);
+		}
+		this.scaleCtx = libswscale.sws_getCachedContext(scaleCtx, cropWidth, cropHeight, srcFormat, outWidth, outHeight, destFormat, scaleFlags, null, null, null);
+		if (scaleCtx == null) {
+			throw new VelvetVideoException("Cannot create scaler from " + cropWidth + "x" + cropHeight + " " + srcFormat + " to " + outWidth + "x" + outHeight + " " + destFormat);
+		}
+	}
+
+	public void planesOnly(boolean planesOnly) {
+		this.planesOnly = planesOnly;
+	}
+
+	/**
+	 * Plane views point into the decoder's frame, which is only safe while frames are consumed before the next one is decoded.
+	 */
+	public void exposePlanes(boolean exposePlanes) {
+		this.exposePlanes = exposePlanes;
+	}
+
+	public void imagePool(int size, boolean block) {
+		this.imagePoolSize = size;
+		this.imagePoolBlock = block;
+		this.imagePool = size > 0 ? new FramePool<>(size, block, this::createImage) : null;
+	}
+
+	/**
+	 * Switches decoded images to another layout. The scaler is recreated for the new target on the next frame and pooled images are replaced.
+	 */
+	public void outputFormat(@NotNull PixelFormat format) {
+		if (format == outputFormat) {
+			return;
+		}
+		this.outputFormat = format;
+		this.destFormat = avformatOf(format);
+		outputChanged();
+	}
+
+	/**
+	 * Restricts converted images to a rectangle of the decoded frame. Offsets are aligned down to the chroma subsampling of the source format.
+	 */
+	public void crop(int x, int y, int w, int h) {
+		if (x < 0 || y < 0 || w <= 0 || h <= 0 || x + w > width || y + h > height) {
+			throw new VelvetVideoException("Crop rectangle " + x + "," + y + " " + w + "x" + h + " is outside of the " + width + "x" + height + " frame");
+		}
+		AVPixFmtDescriptor desc = libavutil.av_pix_fmt_desc_get(srcFormat.ordinal());
+		this.cropX = x & -(1 << desc.log2_chroma_w.get());
+		this.cropY = y & -(1 << desc.log2_chroma_h.get());
+		this.cropWidth = w;
+		this.cropHeight = h;
+		this.cropOffsets = null;
+		outputChanged();
+	}
+
+	/**
+	 * Scales converted images to the given size. A non-positive dimension is derived from the other one, keeping the aspect ratio of the (cropped) frame.
+	 */
+	public void scale(int w, int h, @NotNull ScaleAlgorithm algorithm) {
+		if (w <= 0 && h <= 0) {
+			throw new VelvetVideoException("At least one of the target dimensions must be positive");
+		}
+		this.scaleWidth = w;
+		this.scaleHeight = h;
+		this.scaleFlags = swsFlagsOf(algorithm);
+		outputChanged();
+	}
+
+	private static int swsFlagsOf(@NotNull ScaleAlgorithm algorithm) {
+		return switch (algorithm) {
+			case FAST_BILINEAR -> LibSwScale.SWS_FAST_BILINEAR;
+			case BILINEAR -> LibSwScale.SWS_BILINEAR;
+			case BICUBIC -> LibSwScale.SWS_BICUBIC;
+			case POINT -> LibSwScale.SWS_POINT;
+			case AREA -> LibSwScale.SWS_AREA;
+			case LANCZOS -> LibSwScale.SWS_LANCZOS;
+		};
+	}
+
+	/**
+	 * The output size is derived from the requested scale and the current crop here, so it does not matter which of them is set first.
+	 */
+	private void outputChanged() {
+		this.outWidth = scaleWidth > 0 ? scaleWidth : scaleHeight > 0 ? Math.max(1, (int) ((long) cropWidth * scaleHeight / cropHeight)) : cropWidth;
+		this.outHeight = scaleHeight > 0 ? scaleHeight : scaleWidth > 0 ? Math.max(1, (int) ((long) cropHeight * scaleWidth / cropWidth)) : cropHeight;
+		freeBiframe();
+		imagePool(imagePoolSize, imagePoolBlock);
+	}
+
+	public static AVPixelFormat avformatOf(@NotNull PixelFormat format) {
+		boolean le = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+		return switch (format) {
+			case ABGR -> AVPixelFormat.AV_PIX_FMT_ABGR;
+			// int pixels are read in native byte order: 0xAARRGGBB is B,G,R,A in memory on little endian
+			case INT_ARGB, INT_RGB -> le ? AVPixelFormat.AV_PIX_FMT_BGRA : AVPixelFormat.AV_PIX_FMT_ARGB;
+			case INT_BGR -> le ? AVPixelFormat.AV_PIX_FMT_RGBA : AVPixelFormat.AV_PIX_FMT_ABGR;
+			case GRAY8 -> AVPixelFormat.AV_PIX_FMT_GRAY8;
+			case RGB24 -> AVPixelFormat.AV_PIX_FMT_RGB24;
+			case RGBA -> AVPixelFormat.AV_PIX_FMT_RGBA;
+			case BGRA -> AVPixelFormat.AV_PIX_FMT_BGRA;
+			case YUV420P -> AVPixelFormat.AV_PIX_FMT_YUV420P;
+			case NV12 -> AVPixelFormat.AV_PIX_FMT_NV12;
+			case YUV444P -> AVPixelFormat.AV_PIX_FMT_YUV444P;
+			default -> AVPixelFormat.AV_PIX_FMT_BGR24;
+		};
+	}
+
+	private BufferedImage createImage() {
+		return new BufferedImage(outWidth, outHeight, outputFormat.imageType());
 	}
 
 	public AVFrame alloc(int width, int height, @NotNull AVPixelFormat format) {
@@ -47,43 +205,264 @@ public class VideoFrameHolder implements AutoCloseable, IFrameHolder {
 		return f;
 	}
 
+	/**
+	 * Converts an image into the encoder frame with a single sws_scale from the raster's backing array. Only image types without
+	 * a native pixel format counterpart are redrawn to BGR first.
+	 */
 	public AVFrame setPixels(BufferedImage image) {
-		byte[] bytes = bytesOf(image);
-		biframe.data[0].get().put(0, bytes, 0, bytes.length);
+		AVPixelFormat format = AVPixelFormat.avformatOf(image.getType());
+		// padding bytes of int RGB images would turn into transparency for codecs with alpha
+		if (format == null || AVPixelFormat.hasPaddingByte(image.getType()) && hasAlpha(destFormat)) {
+			image = redraw(image);
+			format = AVPixelFormat.AV_PIX_FMT_BGR24;
+		}
+		if (format != srcFormat || biframe == null) {
+			freeBiframe();
+			this.srcFormat = format;
+			this.biframe = alloc(width, height, format);
+		}
+		copyRaster(image, biframe);
+		if (SliceScaler.applies(width, height, height)) {
+			sliceScale(biframe, width, height, frame, width, 0);
+			return frame;
+		}
+		this.scaleCtx = libswscale.sws_getCachedContext(scaleCtx, width, height, srcFormat, width, height, destFormat, 0, null, null, null);
 		libavutil.checkcode(
 				libswscale.sws_scale(scaleCtx, JNRHelper.ptr(biframe.data[0]), JNRHelper.ptr(biframe.linesize[0]), 0,
 						height, JNRHelper.ptr(frame.data[0]), JNRHelper.ptr(frame.linesize[0])));
 		return frame;
 	}
 
+	private static boolean hasAlpha(@NotNull AVPixelFormat format) {
+		return (libavutil.av_pix_fmt_desc_get(format.ordinal()).flags.get() & LibAVUtil.AV_PIX_FMT_FLAG_ALPHA) != 0;
+	}
+
+	/**
+	 * Copies the rows of a packed raster into a native frame, honouring the raster's scanline stride and offsets (images may be subimages of larger ones).
+	 */
+	private void copyRaster(@NotNull BufferedImage image, @NotNull AVFrame f) {
+		Raster raster = image.getRaster();
+		SampleModel sm = raster.getSampleModel();
+		DataBuffer buffer = raster.getDataBuffer();
+		int stride;
+		int pixelStride;
+		if (sm instanceof SinglePixelPackedSampleModel) {
+			stride = ((SinglePixelPackedSampleModel) sm).getScanlineStride();
+			pixelStride = 1;
+		} else if (sm instanceof ComponentSampleModel) {
+			stride = ((ComponentSampleModel) sm).getScanlineStride();
+			pixelStride = ((ComponentSampleModel) sm).getPixelStride();
+		} else {
+			throw new VelvetVideoException("Unsupported image sample model " + sm.getClass().getSimpleName());
+		}
+		int start = buffer.getOffset() - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX() * pixelStride;
+		int rowElements = width * pixelStride;
+		Pointer dst = f.data[0].get();
+		int linesize = f.linesize[0].get();
+		for (int y = 0; y < height; y++) {
+			long offset = (long) y * linesize;
+			int index = start + y * stride;
+			if (buffer instanceof DataBufferByte) {
+				dst.put(offset, ((DataBufferByte) buffer).getData(), index, rowElements);
+			} else if (buffer instanceof DataBufferInt) {
+				dst.put(offset, ((DataBufferInt) buffer).getData(), index, rowElements);
+			} else if (buffer instanceof DataBufferUShort) {
+				dst.put(offset, ((DataBufferUShort) buffer).getData(), index, rowElements);
+			} else {
+				throw new VelvetVideoException("Unsupported image data buffer type");
+			}
+		}
+	}
+
+	/**
+	 * Fills the encoder frame from raw planes. Planes in the codec's own format are copied row by row straight into the frame;
+	 * other formats are converted by swscale, reading direct buffers in place and staging heap buffers in a native frame first.
+	 */
+	public AVFrame setPlanes(@NotNull AVPixelFormat format, ByteBuffer @NotNull [] planes, int @NotNull [] strides) {
+		int planeCount = libavutil.av_pix_fmt_count_planes(format.ordinal());
+		if (planes.length < planeCount || strides.length < planeCount) {
+			throw new VelvetVideoException("Pixel format " + format + " needs " + planeCount + " planes and strides");
+		}
+		int[] rowBytes = new int[4];
+		libavutil.checkcode(libavutil.av_image_fill_linesizes(rowBytes, format, width));
+		int chromaShift = libavutil.av_pix_fmt_desc_get(format.ordinal()).log2_chroma_h.get();
+		boolean direct = true;
+		for (int p = 0; p < planeCount; p++) {
+			int lines = planeLines(height, chromaShift, p);
+			if (strides[p] < rowBytes[p] || planes[p].remaining() < (long) strides[p] * (lines - 1) + rowBytes[p]) {
+				throw new VelvetVideoException("Plane " + p + " is too small for a " + width + "x" + height + " " + format + " frame");
+			}
+			direct &= planes[p].isDirect();
+		}
+		if (format == destFormat) {
+			for (int p = 0; p < planeCount; p++) {
+				copyPlane(planes[p], strides[p], frame.data[p].get(), frame.linesize[p].get(), rowBytes[p], planeLines(height, chromaShift, p));
+			}
+			return frame;
+		}
+		Pointer[] data = new Pointer[8];
+		int[] linesizes = new int[8];
+		if (!direct && (rawframe == null || rawframe.format.get() != format.ordinal())) {
+			freeFrame(rawframe);
+			rawframe = alloc(width, height, format);
+		}
+		for (int p = 0; p < planeCount; p++) {
+			if (direct) {
+				data[p] = JNRHelper.pointer(planes[p]);
+				linesizes[p] = strides[p];
+			} else {
+				copyPlane(planes[p], strides[p], rawframe.data[p].get(), rawframe.linesize[p].get(), rowBytes[p], planeLines(height, chromaShift, p));
+				data[p] = rawframe.data[p].get();
+				linesizes[p] = rawframe.linesize[p].get();
+			}
+		}
+		if (SliceScaler.applies(width, height, height)) {
+			slices().scale(format, data, linesizes, width, height, destFormat, planePointers(frame), linesizes(frame), width, 0);
+			return frame;
+		}
+		rawScaleCtx = libswscale.sws_getCachedContext(rawScaleCtx, width, height, format, width, height, destFormat, 0, null, null, null);
+		libavutil.checkcode(libswscale.sws_scale(rawScaleCtx, data, linesizes, 0, height,
+				JNRHelper.ptr(frame.data[0]), JNRHelper.ptr(frame.linesize[0])));
+		return frame;
+	}
+
+	private static void copyPlane(@NotNull ByteBuffer src, int srcStride, @NotNull Pointer dst, int dstStride, int rowBytes, int lines) {
+		ByteBuffer target = JNRHelper.buffer(dst, (long) dstStride * lines);
+		int base = src.position();
+		for (int y = 0; y < lines; y++) {
+			target.put(y * dstStride, src, base + y * srcStride, rowBytes);
+		}
+	}
+
+	private static int planeLines(int height, int chromaShift, int plane) {
+		return (plane == 1 || plane == 2) ? -((-height) >> chromaShift) : height;
+	}
+
 	public BufferedImage getPixels(@NotNull AVFrame f) {
-		libavutil.checkcode(libswscale.sws_scale(scaleCtx, JNRHelper.ptr(f.data[0]), JNRHelper.ptr(f.linesize[0]), 0,
-				height, JNRHelper.ptr(biframe.data[0]), JNRHelper.ptr(biframe.linesize[0])));
-		BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
-		byte[] bytes = bytesOf(bi);
-		biframe.data[0].get().get(0, bytes, 0, bytes.length);
+		BufferedImage bi = imagePool != null ? imagePool.acquire() : createImage();
+		boolean cropped = cropWidth != width || cropHeight != height;
+		if (destFormat == AVPixelFormat.AV_PIX_FMT_GRAY8 && LUMA_PLANE_FORMATS.contains(srcFormat)
+				&& outWidth == cropWidth && outHeight == cropHeight) {
+			int linesize = f.linesize[0].get();
+			copyRows(f.data[0].get().slice((long) cropY * linesize + cropX), linesize, bi);
+			return bi;
+		}
+		if (SliceScaler.applies(cropWidth, cropHeight, outHeight)) {
+			if (biframe == null) {
+				this.biframe = alloc(outWidth, outHeight, destFormat);
+			}
+			if (cropped) {
+				Pointer[] data = new Pointer[8];
+				int[] linesizes = new int[8];
+				croppedPlanes(f, data, linesizes);
+				slices().scale(srcFormat, data, linesizes, cropWidth, cropHeight, destFormat, planePointers(biframe), linesizes(biframe), outWidth, scaleFlags);
+			} else {
+				sliceScale(f, width, height, biframe, outWidth, scaleFlags);
+			}
+			copyRows(biframe.data[0].get(), biframe.linesize[0].get(), bi);
+			return bi;
+		}
+		prepareScaler();
+		if (cropped) {
+			Pointer[] data = new Pointer[8];
+			int[] linesizes = new int[8];
+			croppedPlanes(f, data, linesizes);
+			libavutil.checkcode(libswscale.sws_scale(scaleCtx, data, linesizes, 0,
+					cropHeight, JNRHelper.ptr(biframe.data[0]), JNRHelper.ptr(biframe.linesize[0])));
+		} else {
+			libavutil.checkcode(libswscale.sws_scale(scaleCtx, JNRHelper.ptr(f.data[0]), JNRHelper.ptr(f.linesize[0]), 0,
+					height, JNRHelper.ptr(biframe.data[0]), JNRHelper.ptr(biframe.linesize[0])));
+		}
+		copyRows(biframe.data[0].get(), biframe.linesize[0].get(), bi);
 		return bi;
 	}
 
-	private static byte[] bytesOf(@NotNull BufferedImage image) {
-		if (image.getType() != BufferedImage.TYPE_3BYTE_BGR) {
-			BufferedImage newimage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-			Graphics2D g = newimage.createGraphics();
-			g.drawImage(image, 0, 0, null);
-			g.dispose();
-			image = newimage;
+	private SliceScaler slices() {
+		if (sliceScaler == null) {
+			sliceScaler = new SliceScaler();
 		}
-		Raster raster = image.getRaster();
-		DataBuffer buffer = raster.getDataBuffer();
-		if (buffer instanceof DataBufferByte) {
-			return ((DataBufferByte) buffer).getData();
+		return sliceScaler;
+	}
+
+	/**
+	 * Band-parallel counterpart of a whole-frame sws_scale from a frame in the source format to a frame in the destination format.
+	 */
+	private void sliceScale(@NotNull AVFrame src, int srcWidth, int srcHeight, @NotNull AVFrame dst, int dstWidth, int flags) {
+		slices().scale(srcFormat, planePointers(src), linesizes(src), srcWidth, srcHeight,
+				destFormat, planePointers(dst), linesizes(dst), dstWidth, flags);
+	}
+
+	private static Pointer[] planePointers(@NotNull AVFrame f) {
+		Pointer[] data = new Pointer[8];
+		for (int p = 0; p < 4; p++) {
+			data[p] = f.data[p].get();
+		}
+		return data;
+	}
+
+	private static int[] linesizes(@NotNull AVFrame f) {
+		int[] linesizes = new int[8];
+		for (int p = 0; p < 4; p++) {
+			linesizes[p] = f.linesize[p].get();
+		}
+		return linesizes;
+	}
+
+	/**
+	 * Points the source planes at the top left corner of the crop rectangle, so that swscale reads the cropped region only.
+	 */
+	private void croppedPlanes(@NotNull AVFrame f, Pointer[] data, int[] linesizes) {
+		int planeCount = libavutil.av_pix_fmt_count_planes(srcFormat.ordinal());
+		if (cropOffsets == null) {
+			int[] xbytes = new int[4];
+			libavutil.checkcode(libavutil.av_image_fill_linesizes(xbytes, srcFormat, cropX));
+			int chromaShift = libavutil.av_pix_fmt_desc_get(srcFormat.ordinal()).log2_chroma_h.get();
+			cropOffsets = new int[planeCount];
+			for (int p = 0; p < planeCount; p++) {
+				int y = (p == 1 || p == 2) ? cropY >> chromaShift : cropY;
+				cropOffsets[p] = y * f.linesize[p].get() + xbytes[p];
+			}
+		}
+		for (int p = 0; p < planeCount; p++) {
+			data[p] = f.data[p].get().slice(cropOffsets[p]);
+			linesizes[p] = f.linesize[p].get();
 		}
-		throw new VelvetVideoException("Unsupported image data buffer type");
+	}
+
+	/**
+	 * Copies native rows into the image raster, skipping the row padding of the native buffer.
+	 */
+	private void copyRows(@NotNull Pointer src, int linesize, @NotNull BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		DataBuffer buffer = image.getRaster().getDataBuffer();
+		if (buffer instanceof DataBufferInt) {
+			int[] ints = ((DataBufferInt) buffer).getData();
+			for (int y = 0; y < height; y++) {
+				src.get((long) y * linesize, ints, y * width, width);
+			}
+		} else if (buffer instanceof DataBufferByte) {
+			byte[] bytes = ((DataBufferByte) buffer).getData();
+			int rowBytes = bytes.length / height;
+			for (int y = 0; y < height; y++) {
+				src.get((long) y * linesize, bytes, y * rowBytes, rowBytes);
+			}
+		} else {
+			throw new VelvetVideoException("Unsupported image data buffer type");
+		}
+	}
+
+	private static @NotNull BufferedImage redraw(@NotNull BufferedImage image) {
+		BufferedImage newimage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = newimage.createGraphics();
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return newimage;
 	}
 
 	@Override
 	public IVideoFrame decode(AVFrame frame, DemuxerImpl.AbstractDecoderStream stream) {
-		BufferedImage bi = getPixels(frame);
+		BufferedImage bi = planesOnly || outputFormat == PixelFormat.NATIVE ? null : getPixels(frame);
 		long pts = pts();
 		if (pts == LibAVUtil.AVNOPTS_VALUE) {
 			pts = 0;
@@ -91,7 +470,21 @@ public class VideoFrameHolder implements AutoCloseable, IFrameHolder {
 		long nanostamp = pts * 1000000000L * timebase.num.get() / timebase.den.get();
 		long duration = libavutil.av_frame_get_pkt_duration(frame);
 		long nanoduration = duration * 1000000000L * timebase.num.get() / timebase.den.get();
-		return new VideoFrameImpl(bi, nanostamp, nanoduration, (IVideoDecoderStream) stream);
+		int format = (int) frame.format.get();
+		return new VideoFrameImpl(bi, exposePlanes ? planes(frame) : List.of(), libavutil.av_get_pix_fmt_name(format), nanostamp, nanoduration, (IVideoDecoderStream) stream, imagePool);
+	}
+
+	private static @NotNull List<IVideoPlane> planes(@NotNull AVFrame f) {
+		int format = (int) f.format.get();
+		int planeCount = libavutil.av_pix_fmt_count_planes(format);
+		int chromaShift = libavutil.av_pix_fmt_desc_get(format).log2_chroma_h.get();
+		List<IVideoPlane> planes = new ArrayList<>(planeCount);
+		for (int p = 0; p < planeCount; p++) {
+			int lines = planeLines(f.height.get(), chromaShift, p);
+			int linesize = f.linesize[p].get();
+			planes.add(new VideoPlaneImpl(JNRHelper.readOnlyBuffer(f.data[p].get(), (long) linesize * lines), linesize, lines));
+		}
+		return planes;
 	}
 
 	@Override
@@ -100,11 +493,31 @@ public class VideoFrameHolder implements AutoCloseable, IFrameHolder {
 		return frame;
 	}
 
+	private void freeBiframe() {
+		freeFrame(biframe);
+		biframe = null;
+	}
+
+	private static void freeFrame(AVFrame f) {
+		if (f != null) {
+			libavutil.av_frame_free(new Pointer[] { Struct.getMemory(f) });
+		}
+	}
+
 	@Override
 	public void close() {
 		libavutil.av_frame_free(new Pointer[] { Struct.getMemory(frame) });
-		libavutil.av_frame_free(new Pointer[] { Struct.getMemory(biframe) });
-		libswscale.sws_freeContext(scaleCtx);
+		freeBiframe();
+		if (scaleCtx != null) {
+			libswscale.sws_freeContext(scaleCtx);
+		}
+		freeFrame(rawframe);
+		if (rawScaleCtx != null) {
+			libswscale.sws_freeContext(rawScaleCtx);
+		}
+		if (sliceScaler != null) {
+			sliceScaler.close();
+		}
 	}
 
 }
\ No newline at end of file
@@ -2,21 +2,39 @@ package com.toxicstoxm.velvet_video_remastered.impl.middle;
 
 import com.toxicstoxm.velvet_video_remastered.IVideoDecoderStream;
 import com.toxicstoxm.velvet_video_remastered.IVideoFrame;
+import com.toxicstoxm.velvet_video_remastered.IVideoPlane;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.Value;
 import lombok.experimental.Accessors;
 
 import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Accessors(fluent = true)
 @Value
 class VideoFrameImpl implements IVideoFrame {
     BufferedImage image;
+    List<IVideoPlane> planes;
+    String pixelFormat;
     long nanostamp;
     long nanoduration;
     IVideoDecoderStream stream;
+    @Getter(AccessLevel.NONE)
+    FramePool<BufferedImage> pool;
+    @Getter(AccessLevel.NONE)
+    AtomicBoolean released = new AtomicBoolean();
+
+    @Override
+    public void release() {
+    	if (pool != null && image != null && released.compareAndSet(false, true)) {
+    		pool.release(image);
+    	}
+    }
 
     @Override
 	public String toString() {
     	return "Video frame t=" + nanostamp + " stream:" + stream.name();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,15 @@
+package com.toxicstoxm.velvet_video_remastered.impl.middle;
+
+import com.toxicstoxm.velvet_video_remastered.IVideoPlane;
+import lombok.Value;
+import lombok.experimental.Accessors;
+
+import java.nio.ByteBuffer;
+
+@Accessors(fluent = true)
+@Value
+class VideoPlaneImpl implements IVideoPlane {
+	ByteBuffer buffer;
+	int linesize;
+	int lines;
+}
@@ -0,0 +1,80 @@
+package com.toxicstoxm.velvet_video_remastered;
+
+import com.toxicstoxm.velvet_video_remastered.impl.VelvetVideoLib;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Needs the FFmpeg natives, skipped where they cannot be loaded.
+ */
+class ChunkedEncodingTest {
+
+    private static final int FRAMES = 50;
+
+    private static IVelvetVideoLib lib;
+
+    @BeforeAll
+    static void loadNatives() {
+        try {
+            lib = VelvetVideoLib.getInstance();
+        } catch (Throwable e) {
+            assumeTrue(false, "FFmpeg natives not available: " + e);
+        }
+        assumeTrue(lib.codecs(Direction.Encode, MediaType.Video).contains("mpeg4"), "mpeg4 encoder not available");
+    }
+
+    @Test
+    void muxesChunksWithBFrames() {
+        MemSeekableFile file = new MemSeekableFile();
+        try (IMuxer muxer = lib.muxer("mp4")
+                .videoEncoder(lib.videoEncoder("mpeg4").framerate(25).param("bf", "2").chunked(12, 3))
+                .build(file)) {
+            IVideoEncoderStream stream = muxer.videoEncoder(0);
+            for (int i = 0; i < FRAMES; i++) {
+                stream.encode(image(i));
+            }
+        }
+
+        try (IDemuxer demuxer = lib.demuxer(file.newInput())) {
+            IVideoDecoderStream stream = demuxer.videoStream(0);
+            long lastDts = Long.MIN_VALUE;
+            int packets = 0;
+            IRawPacket packet;
+            while ((packet = stream.nextRawPacket()) != null) {
+                assertTrue(packet.dts() <= packet.pts(), "DTS after PTS");
+                assertTrue(packet.dts() > lastDts, "DTS not increasing");
+                lastDts = packet.dts();
+                packets++;
+            }
+            assertEquals(FRAMES, packets);
+        }
+
+        try (IDemuxer demuxer = lib.demuxer(file.newInput())) {
+            IVideoDecoderStream stream = demuxer.videoStream(0);
+            int frames = 0;
+            while (stream.nextFrame() != null) {
+                frames++;
+            }
+            assertEquals(FRAMES, frames);
+        }
+    }
+
+    private static BufferedImage image(int index) {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.DARK_GRAY);
+        graphics.fillRect(0, 0, 64, 48);
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(index % 56, 16, 8, 16);
+        graphics.dispose();
+        return image;
+    }
+}
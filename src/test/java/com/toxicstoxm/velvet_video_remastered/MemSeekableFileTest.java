@@ -0,0 +1,113 @@
+package com.toxicstoxm.velvet_video_remastered;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemSeekableFileTest {
+
+    private static final int CHUNK = 1024 * 1024;
+
+    private final MemSeekableFile file = new MemSeekableFile();
+
+    private static byte[] pattern(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + seed);
+        }
+        return bytes;
+    }
+
+    @Test
+    void readsBackWritesAcrossChunks() {
+        byte[] data = pattern(2 * CHUNK + 100, 1);
+        file.write(data);
+        assertEquals(data.length, file.size());
+
+        file.seek(0);
+        byte[] read = new byte[data.length];
+        assertEquals(data.length, file.read(read));
+        assertArrayEquals(data, read);
+        assertEquals(-1, file.read(new byte[1]));
+    }
+
+    @Test
+    void overwritesAcrossChunkBoundary() {
+        file.write(pattern(2 * CHUNK, 1));
+        byte[] patch = pattern(64, 7);
+        file.seek(CHUNK - 32);
+        file.write(patch);
+        assertEquals(2 * CHUNK, file.size());
+
+        file.seek(CHUNK - 32);
+        byte[] read = new byte[64];
+        assertEquals(64, file.read(read));
+        assertArrayEquals(patch, read);
+    }
+
+    @Test
+    void readsDirectBufferAcrossChunkBoundary() {
+        byte[] data = pattern(CHUNK + 10, 3);
+        file.write(ByteBuffer.wrap(data));
+        file.seek(CHUNK - 5);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(100);
+        assertEquals(15, file.read(buffer));
+        assertEquals(15, buffer.position());
+        for (int i = 0; i < 15; i++) {
+            assertEquals(data[CHUNK - 5 + i], buffer.get(i));
+        }
+    }
+
+    @Test
+    void rejectsSeekOutsideOfContent() {
+        file.write(pattern(10, 0));
+        file.seek(10);
+        assertThrows(IllegalArgumentException.class, () -> file.seek(11));
+        assertThrows(IllegalArgumentException.class, () -> file.seek(-1));
+        assertThrows(IllegalArgumentException.class, () -> file.newInput().seek(-1));
+    }
+
+    @Test
+    void buffersCoverContentWithoutCopying() {
+        byte[] data = pattern(CHUNK + 10, 5);
+        file.write(data);
+        List<ByteBuffer> buffers = file.buffers();
+        assertEquals(2, buffers.size());
+        assertEquals(CHUNK, buffers.get(0).remaining());
+        assertEquals(10, buffers.get(1).remaining());
+        assertTrue(buffers.get(0).isReadOnly());
+        assertEquals(data[CHUNK + 3], buffers.get(1).get(3));
+
+        file.seek(CHUNK + 3);
+        file.write(new byte[] {42});
+        assertEquals(42, buffers.get(1).get(3));
+    }
+
+    @Test
+    void newInputHasItsOwnPosition() {
+        byte[] data = pattern(CHUNK + 10, 9);
+        file.write(data);
+        ISeekableInput input = file.newInput();
+        assertEquals(data.length, input.size());
+        input.seek(CHUNK);
+        byte[] read = new byte[10];
+        assertEquals(10, input.read(read));
+        assertEquals(data[CHUNK], read[0]);
+        assertEquals(-1, input.read(read));
+        assertEquals(data.length, file.size());
+        assertEquals(-1, file.read(read));
+    }
+
+    @Test
+    void toBytesCopiesWholeContent() {
+        byte[] data = pattern(CHUNK + 10, 11);
+        file.write(data);
+        assertArrayEquals(data, file.toBytes());
+    }
+}
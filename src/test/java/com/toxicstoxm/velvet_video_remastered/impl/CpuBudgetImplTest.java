@@ -0,0 +1,71 @@
+package com.toxicstoxm.velvet_video_remastered.impl;
+
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CpuBudgetImplTest {
+
+    private final CpuBudgetImpl budget = new CpuBudgetImpl();
+
+    @Test
+    void leasesNothingWhenDisabled() {
+        assertSame(CpuBudgetImpl.Lease.NONE, budget.lease(4));
+        assertEquals(0, budget.leased());
+    }
+
+    @Test
+    void leasesAndReleases() {
+        budget.cores(4);
+        CpuBudgetImpl.Lease lease = budget.lease(3);
+        assertEquals(3, lease.threads());
+        assertEquals(3, budget.leased());
+        budget.release(lease);
+        assertEquals(0, budget.leased());
+    }
+
+    @Test
+    void sharesCoresAmongRegisteredEncoders() {
+        budget.cores(8);
+        for (int i = 0; i < 4; i++) {
+            budget.register();
+        }
+        assertEquals(2, budget.lease(0).threads());
+        budget.unregister();
+        budget.unregister();
+        assertEquals(4, budget.lease(0).threads());
+    }
+
+    @Test
+    void grantsOnlyRemainingCores() {
+        budget.cores(4);
+        budget.lease(3);
+        assertEquals(1, budget.lease(3).threads());
+        assertEquals(4, budget.leased());
+    }
+
+    @Test
+    void failsWhenCallingThreadHoldsEveryCore() {
+        budget.cores(2);
+        budget.lease(2);
+        assertThrows(VelvetVideoException.class, () -> budget.lease(1));
+    }
+
+    @Test
+    void waitsForCoresLeasedByOtherThreads() throws Exception {
+        budget.cores(2);
+        CpuBudgetImpl.Lease held = CompletableFuture.supplyAsync(() -> budget.lease(2)).get(5, TimeUnit.SECONDS);
+        CompletableFuture<CpuBudgetImpl.Lease> waiting = CompletableFuture.supplyAsync(() -> budget.lease(1));
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+        budget.release(held);
+        assertEquals(1, waiting.get(5, TimeUnit.SECONDS).threads());
+    }
+}
@@ -0,0 +1,88 @@
+package com.toxicstoxm.velvet_video_remastered.impl;
+
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.LibAVFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InputAvioCallbackTest {
+
+    private static final long SIZE = 5L * 1024 * 1024 * 1024 + 123;
+    private static final long MARK = 4L * 1024 * 1024 * 1024 + 7;
+
+    @TempDir
+    Path dir;
+
+    private FileSeekableInput input;
+    private InputAvioCallback callback;
+
+    @BeforeEach
+    void createSparseFile() throws IOException {
+        File file = dir.resolve("sparse.bin").toFile();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(SIZE);
+            raf.seek(MARK);
+            raf.write(42);
+        }
+        input = new FileSeekableInput(new FileInputStream(file));
+        callback = new InputAvioCallback(input);
+    }
+
+    @AfterEach
+    void close() {
+        input.close();
+    }
+
+    private int readByte() {
+        byte[] b = new byte[1];
+        assertEquals(1, input.read(b));
+        return b[0];
+    }
+
+    @Test
+    void reportsSizeBeyond4GB() {
+        assertEquals(SIZE, callback.seek(null, 0, LibAVFormat.AVSEEK_SIZE));
+        assertEquals(SIZE, callback.seek(null, 0, LibAVFormat.AVSEEK_SIZE | LibAVFormat.AVSEEK_FORCE));
+    }
+
+    @Test
+    void seeksFromStart() {
+        assertEquals(MARK, callback.seek(null, MARK, LibAVFormat.SEEK_SET));
+        assertEquals(42, readByte());
+    }
+
+    @Test
+    void seeksFromCurrent() {
+        assertEquals(MARK - 1, callback.seek(null, MARK - 1, LibAVFormat.SEEK_SET));
+        assertEquals(MARK, callback.seek(null, 1, LibAVFormat.SEEK_CUR));
+        assertEquals(42, readByte());
+    }
+
+    @Test
+    void seeksFromEnd() {
+        assertEquals(MARK, callback.seek(null, MARK - SIZE, LibAVFormat.SEEK_END | LibAVFormat.AVSEEK_FORCE));
+        assertEquals(42, readByte());
+    }
+
+    @Test
+    void keepsPositionOnFailedSeek() {
+        assertEquals(MARK, callback.seek(null, MARK, LibAVFormat.SEEK_SET));
+        assertEquals(InputAvioCallback.UNSUPPORTED, callback.seek(null, -1, LibAVFormat.SEEK_SET));
+        assertEquals(MARK, callback.seek(null, 0, LibAVFormat.SEEK_CUR));
+        assertEquals(42, readByte());
+    }
+
+    @Test
+    void rejectsUnknownWhence() {
+        assertEquals(InputAvioCallback.UNSUPPORTED, callback.seek(null, 0, 3));
+    }
+}
@@ -0,0 +1,86 @@
+package com.toxicstoxm.velvet_video_remastered.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedFileSeekableInputTest {
+
+    private static final long WINDOW = 256L * 1024 * 1024;
+    private static final long SIZE = WINDOW + 1000;
+    private static final byte[] MARK = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    @TempDir
+    Path dir;
+
+    private MappedFileSeekableInput input;
+
+    @BeforeEach
+    void createSparseFile() throws IOException {
+        File file = dir.resolve("sparse.bin").toFile();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(SIZE);
+            raf.seek(WINDOW - MARK.length / 2);
+            raf.write(MARK);
+            raf.seek(SIZE - 1);
+            raf.write(9);
+        }
+        input = new MappedFileSeekableInput(file);
+    }
+
+    @AfterEach
+    void close() {
+        input.close();
+    }
+
+    @Test
+    void readsAcrossWindowBoundary() {
+        input.seek(WINDOW - MARK.length / 2);
+        byte[] bytes = new byte[MARK.length];
+        assertEquals(MARK.length, input.read(bytes));
+        assertArrayEquals(MARK, bytes);
+    }
+
+    @Test
+    void readsDirectBufferAcrossWindowBoundary() {
+        input.seek(WINDOW - MARK.length);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MARK.length * 2);
+        assertEquals(MARK.length * 2, input.read(buffer));
+        assertEquals(MARK.length * 2, buffer.position());
+        byte[] bytes = new byte[MARK.length];
+        buffer.get(MARK.length / 2, bytes);
+        assertArrayEquals(MARK, bytes);
+    }
+
+    @Test
+    void readsUpToEndOfFile() {
+        input.seek(SIZE - 1);
+        byte[] bytes = new byte[4];
+        assertEquals(1, input.read(bytes));
+        assertEquals(9, bytes[0]);
+        assertEquals(-1, input.read(bytes));
+    }
+
+    @Test
+    void seeksToEndOfFile() {
+        input.seek(SIZE);
+        assertEquals(-1, input.read(new byte[1]));
+    }
+
+    @Test
+    void rejectsSeekOutsideOfFile() {
+        assertThrows(IllegalArgumentException.class, () -> input.seek(-1));
+        assertThrows(IllegalArgumentException.class, () -> input.seek(SIZE + 1));
+    }
+}
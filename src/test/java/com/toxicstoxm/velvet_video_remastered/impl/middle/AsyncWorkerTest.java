@@ -0,0 +1,137 @@
+package com.toxicstoxm.velvet_video_remastered.impl.middle;
+
+import com.toxicstoxm.velvet_video_remastered.OverflowPolicy;
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
+import com.toxicstoxm.velvet_video_remastered.impl.VelvetVideoLib;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncWorkerTest {
+
+    private final List<String> ran = new CopyOnWriteArrayList<>();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch proceed = new CountDownLatch(1);
+
+    @BeforeAll
+    static void initLogger() {
+        VelvetVideoLib.initialize(null);
+    }
+
+    private Runnable task(String name) {
+        return () -> ran.add(name);
+    }
+
+    /**
+     * Submits a task that keeps the worker busy until {@link #proceed} is counted down, then fills the queue of depth 1.
+     */
+    private AsyncWorker busyWorker(OverflowPolicy policy) throws InterruptedException {
+        AsyncWorker worker = new AsyncWorker("test", 1, policy);
+        worker.submit(() -> {
+            started.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ran.add("busy");
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(worker.submit(task("queued")));
+        return worker;
+    }
+
+    @Test
+    void runsTasksInOrder() {
+        AsyncWorker worker = new AsyncWorker("test", 4, OverflowPolicy.BLOCK);
+        for (int i = 0; i < 10; i++) {
+            worker.submit(task("t" + i));
+        }
+        worker.finish();
+        assertEquals(List.of("t0", "t1", "t2", "t3", "t4", "t5", "t6", "t7", "t8", "t9"), ran);
+    }
+
+    @Test
+    void blocksUntilQueueHasRoom() throws Exception {
+        AsyncWorker worker = busyWorker(OverflowPolicy.BLOCK);
+        CompletableFuture<Boolean> submitted = CompletableFuture.supplyAsync(() -> worker.submit(task("new")));
+        Thread.sleep(100);
+        assertFalse(submitted.isDone());
+        proceed.countDown();
+        assertTrue(submitted.get(5, TimeUnit.SECONDS));
+        worker.finish();
+        assertEquals(List.of("busy", "queued", "new"), ran);
+    }
+
+    @Test
+    void failsWhenQueueIsFull() throws Exception {
+        AsyncWorker worker = busyWorker(OverflowPolicy.FAIL);
+        assertThrows(VelvetVideoException.class, () -> worker.submit(task("new")));
+        proceed.countDown();
+        worker.finish();
+        assertEquals(List.of("busy", "queued"), ran);
+    }
+
+    @Test
+    void dropsOldestQueuedTask() throws Exception {
+        AsyncWorker worker = busyWorker(OverflowPolicy.DROP_OLDEST);
+        assertTrue(worker.submit(task("new")));
+        proceed.countDown();
+        worker.finish();
+        assertEquals(List.of("busy", "new"), ran);
+    }
+
+    @Test
+    void dropsNewestTask() throws Exception {
+        AsyncWorker worker = busyWorker(OverflowPolicy.DROP_NEWEST);
+        assertFalse(worker.submit(task("new")));
+        proceed.countDown();
+        worker.finish();
+        assertEquals(List.of("busy", "queued"), ran);
+    }
+
+    @Test
+    void rethrowsTaskFailureOnFinish() {
+        AsyncWorker worker = new AsyncWorker("test", 4, OverflowPolicy.BLOCK);
+        IllegalStateException failure = new IllegalStateException("boom");
+        worker.submit(() -> {
+            throw failure;
+        });
+        VelvetVideoException thrown = assertThrows(VelvetVideoException.class, worker::finish);
+        assertSame(failure, thrown.getCause());
+    }
+
+    @Test
+    void rethrowsVelvetVideoExceptionOnNextSubmit() throws Exception {
+        AsyncWorker worker = new AsyncWorker("test", 4, OverflowPolicy.BLOCK);
+        VelvetVideoException failure = new VelvetVideoException("boom");
+        CountDownLatch failed = new CountDownLatch(1);
+        worker.submit(() -> {
+            failed.countDown();
+            throw failure;
+        });
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        VelvetVideoException thrown = null;
+        // the failure is recorded right after the task throws, submit until it is seen
+        for (int i = 0; i < 500 && thrown == null; i++) {
+            try {
+                worker.submit(task("next"));
+                Thread.sleep(10);
+            } catch (VelvetVideoException e) {
+                thrown = e;
+            }
+        }
+        assertSame(failure, thrown);
+    }
+}
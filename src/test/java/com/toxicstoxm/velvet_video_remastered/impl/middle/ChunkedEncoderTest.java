@@ -0,0 +1,82 @@
+package com.toxicstoxm.velvet_video_remastered.impl.middle;
+
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkedEncoderTest {
+
+    // closed GOP I B B P B B P B B P in decoding order, relative to the chunk start
+    private static final long[] GOP = {0, 3, 1, 2, 6, 4, 5, 9, 7, 8};
+
+    private final ChunkedEncoder.DtsStitcher stitcher = new ChunkedEncoder.DtsStitcher();
+
+    @Test
+    void keepsFirstChunkAndContinuesReorderDelay() {
+        long[] pts0 = pts(0, 1);
+        long[] dts0 = encoderDts(pts0, 2, 1);
+        assertArrayEquals(dts0, stitcher.stitch(pts0, dts0));
+
+        long[] pts1 = pts(10, 1);
+        long[] dts1 = stitcher.stitch(pts1, encoderDts(pts1, 2, 1));
+        assertArrayEquals(new long[] {8, 9, 10, 11, 12, 13, 14, 15, 16, 17}, dts1);
+        assertValid(pts1, dts1, dts0[dts0.length - 1]);
+    }
+
+    @Test
+    void ignoresOverlappingEncoderDts() {
+        long[] pts0 = pts(0, 1);
+        long[] dts0 = stitcher.stitch(pts0, encoderDts(pts0, 2, 1));
+
+        // longer frames make the second encoder start decoding well before the end of the first chunk
+        long[] pts1 = pts(10, 3);
+        long[] dts1 = stitcher.stitch(pts1, encoderDts(pts1, 2, 3));
+        assertArrayEquals(new long[] {8, 9, 10, 13, 16, 19, 22, 25, 28, 31}, dts1);
+        assertValid(pts1, dts1, dts0[dts0.length - 1]);
+    }
+
+    @Test
+    void leavesUnreorderedChunksAlone() {
+        long[] pts0 = {0, 1, 2, 3};
+        long[] pts1 = {4, 5, 6, 7};
+        assertArrayEquals(pts0, stitcher.stitch(pts0, pts0.clone()));
+        assertArrayEquals(pts1, stitcher.stitch(pts1, pts1.clone()));
+    }
+
+    @Test
+    void rejectsDeeperReorderingThanFirstChunk() {
+        long[] pts0 = {0, 1, 2, 3};
+        stitcher.stitch(pts0, pts0.clone());
+        long[] pts1 = pts(4, 1);
+        assertThrows(VelvetVideoException.class, () -> stitcher.stitch(pts1, encoderDts(pts1, 2, 1)));
+    }
+
+    private static long[] pts(long start, long duration) {
+        return Arrays.stream(GOP).map(p -> start + p * duration).toArray();
+    }
+
+    /**
+     * DTS the way libx264 assigns them: the presentation timestamps in order, delayed by a number of packets.
+     */
+    private static long[] encoderDts(long[] pts, int delay, long duration) {
+        long[] sorted = Arrays.stream(pts).sorted().toArray();
+        long[] dts = new long[pts.length];
+        for (int i = 0; i < pts.length; i++) {
+            dts[i] = i < delay ? sorted[0] - (delay - i) * duration : sorted[i - delay];
+        }
+        return dts;
+    }
+
+    private static void assertValid(long[] pts, long[] dts, long previousDts) {
+        for (int i = 0; i < pts.length; i++) {
+            assertTrue(dts[i] <= pts[i], "DTS after PTS at " + i);
+            assertTrue(dts[i] > previousDts, "DTS not increasing at " + i);
+            previousDts = dts[i];
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.toxicstoxm.velvet_video_remastered.impl.middle;
+
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FramePoolTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private FramePool<Object> pool(boolean block) {
+        return new FramePool<>(2, block, () -> {
+            created.incrementAndGet();
+            return new Object();
+        });
+    }
+
+    @Test
+    void createsElementsUpToSize() {
+        FramePool<Object> pool = pool(false);
+        pool.acquire();
+        pool.acquire();
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void reusesReleasedElements() {
+        FramePool<Object> pool = pool(false);
+        Object first = pool.acquire();
+        pool.release(first);
+        assertSame(first, pool.acquire());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void throwsWhenExhausted() {
+        FramePool<Object> pool = pool(false);
+        pool.acquire();
+        pool.acquire();
+        assertThrows(VelvetVideoException.class, pool::acquire);
+    }
+
+    @Test
+    void blocksWhenExhaustedUntilRelease() throws Exception {
+        FramePool<Object> pool = pool(true);
+        Object first = pool.acquire();
+        pool.acquire();
+        CompletableFuture<Object> waiting = CompletableFuture.supplyAsync(pool::acquire);
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+        pool.release(first);
+        assertSame(first, waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(2, created.get());
+    }
+}
@@ -0,0 +1,128 @@
+package com.toxicstoxm.velvet_video_remastered.impl.middle;
+
+import com.toxicstoxm.velvet_video_remastered.OverflowPolicy;
+import com.toxicstoxm.velvet_video_remastered.VelvetVideoException;
+import com.toxicstoxm.velvet_video_remastered.impl.VelvetVideoLib;
+import com.toxicstoxm.velvet_video_remastered.impl.jnr.AVPacket;
+import jnr.ffi.Runtime;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PacketQueueTest {
+
+    /** queued reference to the offered packet it was created for */
+    private final Map<AVPacket, AVPacket> references = new IdentityHashMap<>();
+    private final List<AVPacket> released = new ArrayList<>();
+
+    @BeforeAll
+    static void initLogger() {
+        VelvetVideoLib.initialize(null);
+    }
+
+    private static AVPacket packet() {
+        return new AVPacket(Runtime.getSystemRuntime());
+    }
+
+    private PacketQueue queue(int capacity, OverflowPolicy policy) {
+        return new PacketQueue("test", capacity, policy, packet -> {
+            AVPacket reference = packet();
+            references.put(reference, packet);
+            return reference;
+        }, released::add);
+    }
+
+    private AVPacket pollOriginal(PacketQueue queue) {
+        AVPacket reference = queue.poll();
+        return reference == null ? null : references.get(reference);
+    }
+
+    @Test
+    void pollsReferencesInOrder() {
+        PacketQueue queue = queue(4, OverflowPolicy.FAIL);
+        AVPacket first = packet();
+        AVPacket second = packet();
+        assertEquals(Long.MAX_VALUE, queue.headSequence());
+        queue.offer(first, 3);
+        queue.offer(second, 7);
+        assertEquals(3, queue.headSequence());
+        assertSame(first, pollOriginal(queue));
+        assertEquals(7, queue.headSequence());
+        assertSame(second, pollOriginal(queue));
+        assertEquals(Long.MAX_VALUE, queue.headSequence());
+        assertNull(queue.poll());
+        assertEquals(0, released.size());
+    }
+
+    @Test
+    void failsWhenFull() {
+        PacketQueue queue = queue(2, OverflowPolicy.FAIL);
+        queue.offer(packet(), 1);
+        queue.offer(packet(), 2);
+        assertThrows(VelvetVideoException.class, () -> queue.offer(packet(), 3));
+        assertEquals(2, references.size());
+    }
+
+    @Test
+    void dropsOldestWhenFull() {
+        PacketQueue queue = queue(2, OverflowPolicy.DROP_OLDEST);
+        AVPacket first = packet();
+        queue.offer(first, 1);
+        queue.offer(packet(), 2);
+        queue.offer(packet(), 3);
+        assertEquals(1, released.size());
+        assertSame(first, references.get(released.get(0)));
+        assertEquals(2, queue.headSequence());
+    }
+
+    @Test
+    void dropsNewestWhenFull() {
+        PacketQueue queue = queue(2, OverflowPolicy.DROP_NEWEST);
+        queue.offer(packet(), 1);
+        queue.offer(packet(), 2);
+        queue.offer(packet(), 3);
+        assertEquals(2, references.size());
+        assertEquals(0, released.size());
+        assertEquals(1, queue.headSequence());
+        queue.poll();
+        assertEquals(2, queue.headSequence());
+        queue.poll();
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void clearReleasesQueuedReferences() {
+        PacketQueue queue = queue(4, OverflowPolicy.FAIL);
+        queue.offer(packet(), 1);
+        queue.offer(packet(), 2);
+        queue.clear();
+        assertEquals(2, released.size());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void mergesQueuesBackInContainerOrder() {
+        PacketQueue video = queue(8, OverflowPolicy.FAIL);
+        PacketQueue audio = queue(8, OverflowPolicy.FAIL);
+        List<AVPacket> read = new ArrayList<>();
+        for (int sequence = 1; sequence <= 6; sequence++) {
+            AVPacket packet = packet();
+            read.add(packet);
+            (sequence % 3 == 0 ? audio : video).offer(packet, sequence);
+        }
+        List<AVPacket> merged = new ArrayList<>();
+        while (video.headSequence() != Long.MAX_VALUE || audio.headSequence() != Long.MAX_VALUE) {
+            merged.add(pollOriginal(video.headSequence() < audio.headSequence() ? video : audio));
+        }
+        assertEquals(read, merged);
+    }
+}
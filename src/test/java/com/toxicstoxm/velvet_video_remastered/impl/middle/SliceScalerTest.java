@@ -0,0 +1,87 @@
+package com.toxicstoxm.velvet_video_remastered.impl.middle;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SliceScalerTest {
+
+    @Test
+    void bandsCoverFrameWithoutGaps() {
+        for (int height : new int[] {128, 1080, 1081, 1440, 2160, 4321}) {
+            for (int parallelism : new int[] {1, 2, 3, 7, 16, 64}) {
+                SliceScaler.Bands bands = new SliceScaler.Bands(height, 1, 1, parallelism);
+                assertTrue(bands.count() >= 1 && bands.count() <= parallelism);
+                int next = 0;
+                for (int b = 0; b < bands.count(); b++) {
+                    assertEquals(next, bands.y(b));
+                    assertTrue(bands.height(b) > 0);
+                    next += bands.height(b);
+                }
+                assertEquals(height, next);
+            }
+        }
+    }
+
+    @Test
+    void bandEdgesAreChromaAligned() {
+        SliceScaler.Bands bands = new SliceScaler.Bands(1085, 0, 2, 5);
+        for (int b = 1; b < bands.count(); b++) {
+            assertEquals(0, bands.y(b) % 4);
+        }
+    }
+
+    @Test
+    void leftoverRowsDoNotAddBand() {
+        SliceScaler.Bands bands = new SliceScaler.Bands(200, 0, 0, 16);
+        assertEquals(3, bands.count());
+        assertEquals(67, bands.height(0));
+        assertEquals(66, bands.height(2));
+    }
+
+    @Test
+    void noOverlapWithoutVerticalSubsampling() {
+        SliceScaler.Bands bands = new SliceScaler.Bands(1080, 0, 0, 4);
+        for (int b = 0; b < bands.count(); b++) {
+            assertEquals(bands.height(b), bands.rows(b));
+        }
+    }
+
+    @Test
+    void overlapIsClampedAtFrameEdges() {
+        SliceScaler.Bands bands = new SliceScaler.Bands(1080, 1, 0, 4);
+        assertEquals(4, bands.count());
+        assertEquals(0, bands.top(0));
+        assertEquals(8, bands.bottom(0));
+        assertEquals(8, bands.top(1));
+        assertEquals(8, bands.bottom(1));
+        assertEquals(8, bands.top(3));
+        assertEquals(0, bands.bottom(3));
+        assertEquals(270 + 16, bands.rows(1));
+    }
+
+    @Test
+    void ownRowsAreCopiedOutOfOverlap() {
+        SliceScaler.Bands bands = new SliceScaler.Bands(1080, 1, 1, 4);
+        for (int b = 0; b < bands.count(); b++) {
+            assertEquals(bands.top(b), bands.ownFrom(b, 0));
+            assertEquals(bands.height(b), bands.ownRows(b, 0));
+            assertEquals(bands.top(b) / 2, bands.ownFrom(b, 1));
+            assertEquals(bands.height(b) / 2, bands.ownRows(b, 1));
+        }
+    }
+
+    @Test
+    void oddLastBandCopiesPartialChromaRow() {
+        SliceScaler.Bands bands = new SliceScaler.Bands(1081, 1, 1, 4);
+        int last = bands.count() - 1;
+        assertEquals(1, bands.height(last) % 2);
+        assertEquals(bands.height(last) / 2 + 1, bands.ownRows(last, 1));
+        int chromaRows = 0;
+        for (int b = 0; b < bands.count(); b++) {
+            chromaRows += bands.ownRows(b, 1);
+        }
+        assertEquals((1081 + 1) / 2, chromaRows);
+    }
+}